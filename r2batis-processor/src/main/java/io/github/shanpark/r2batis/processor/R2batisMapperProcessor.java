@@ -0,0 +1,72 @@
+package io.github.shanpark.r2batis.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 컴파일 시에 {@code @R2batisMapper} 인터페이스들의 목록을 META-INF/r2batis/mappers 파일로 남긴다.
+ * starter는 시작 시에 이 목록이 있는 classpath root를 scan 하지 않고 목록만 읽는다.
+ * 모든 인터페이스를 모아서 하나의 파일을 쓰므로 Gradle에는 aggregating processor로 등록되어 있다.
+ */
+@SupportedAnnotationTypes(R2batisMapperProcessor.ANNOTATION_NAME)
+public class R2batisMapperProcessor extends AbstractProcessor {
+
+    static final String ANNOTATION_NAME = "io.github.shanpark.r2batis.annotation.R2batisMapper";
+    static final String INDEX_LOCATION = "META-INF/r2batis/mappers";
+
+    private final Set<String> mapperNames = new TreeSet<>();
+    private final List<Element> originatingElements = new ArrayList<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.INTERFACE) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "@R2batisMapper is only valid on interfaces.", element);
+                    continue;
+                }
+
+                TypeElement mapperElement = (TypeElement) element;
+                mapperNames.add(processingEnv.getElementUtils().getBinaryName(mapperElement).toString());
+                originatingElements.add(mapperElement); // incremental 컴파일 시에 이 인터페이스가 바뀌면 목록을 다시 만들도록 한다.
+            }
+        }
+
+        if (roundEnv.processingOver() && !mapperNames.isEmpty())
+            writeIndex();
+        return false; // 다른 processor도 이 어노테이션을 처리할 수 있도록 한다.
+    }
+
+    private void writeIndex() {
+        Filer filer = processingEnv.getFiler();
+        try {
+            FileObject index = filer.createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_LOCATION, originatingElements.toArray(new Element[0]));
+            try (Writer writer = index.openWriter()) {
+                for (String mapperName : mapperNames)
+                    writer.write(mapperName + "\n");
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write " + INDEX_LOCATION + ": " + e.getMessage());
+        }
+    }
+}
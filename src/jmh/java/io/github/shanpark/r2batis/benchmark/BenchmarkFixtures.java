@@ -0,0 +1,104 @@
+package io.github.shanpark.r2batis.benchmark;
+
+import io.github.shanpark.r2batis.core.InterfaceImpl;
+import io.github.shanpark.r2batis.core.MethodImpl;
+import io.github.shanpark.r2batis.mapper.Mapper;
+import io.github.shanpark.r2batis.mapper.MapperContext;
+import io.github.shanpark.r2batis.mapper.Query;
+import io.github.shanpark.r2batis.mapper.XmlMapperParser;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import org.reactivestreams.Publisher;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.binding.BindMarkersFactory;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.Arrays;
+
+/**
+ * benchmark 들이 공통으로 사용하는 mapper xml, Query, MethodImpl 등을 준비한다.
+ * DB 연결 없이 SQL 생성과 binding 까지만 측정하므로 connection 을 만들 수 없는 ConnectionFactory 를 사용한다.
+ */
+final class BenchmarkFixtures {
+
+    static final Mapper MAPPER = loadMapper();
+
+    /**
+     * connection 을 생성하려고 하면 에러가 발생하는 ConnectionFactory. DatabaseClient 를 만들 때만 필요하다.
+     */
+    static final ConnectionFactory NO_CONNECTION_FACTORY = new ConnectionFactory() {
+        @Override
+        public Publisher<? extends Connection> create() {
+            return Mono.error(new UnsupportedOperationException("The benchmark does not connect to a database."));
+        }
+
+        @Override
+        public ConnectionFactoryMetadata getMetadata() {
+            return () -> "benchmark";
+        }
+    };
+
+    static final DatabaseClient DATABASE_CLIENT = DatabaseClient.builder()
+            .connectionFactory(NO_CONNECTION_FACTORY)
+            .bindMarkers(BindMarkersFactory.indexed("$", 1))
+            .build();
+
+    private BenchmarkFixtures() {
+    }
+
+    private static Mapper loadMapper() {
+        try (InputStream is = BenchmarkFixtures.class.getResourceAsStream("/mapper/BenchmarkMapper.xml")) {
+            return XmlMapperParser.parse(is);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static Query query(String id) {
+        return MAPPER.getQueryList().stream()
+                .filter(query -> query.getId().equals(id))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No query: " + id));
+    }
+
+    static Method method(String name) {
+        return Arrays.stream(BenchmarkMapper.class.getMethods())
+                .filter(method -> method.getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No method: " + name));
+    }
+
+    /**
+     * MethodImpl 과 같은 방식으로 메소드의 parameter 정보를 만든다. parameter 이름을 얻으려면 -parameters 옵션으로 컴파일되어야 한다.
+     */
+    static MethodImpl.ParamInfo[] paramInfos(String methodName) {
+        Parameter[] parameters = method(methodName).getParameters();
+        MethodImpl.ParamInfo[] paramInfos = new MethodImpl.ParamInfo[parameters.length];
+        for (int inx = 0; inx < parameters.length; inx++)
+            paramInfos[inx] = new MethodImpl.ParamInfo(parameters[inx].getName(), parameters[inx].getType());
+        return paramInfos;
+    }
+
+    static MethodImpl methodImpl(String name) {
+        InterfaceImpl host = new InterfaceImpl(BenchmarkMapper.class, "", ""); // metrics 와 결과 캐쉬는 사용하지 않는 상태.
+        return new MethodImpl(host, method(name), query(name));
+    }
+
+    /**
+     * MethodImpl 이 동적 SQL 을 생성할 때와 같이 MapperContext 를 얻어서 SQL 을 생성하고 반납한다.
+     *
+     * @return 생성된 SQL 과 bind 할 placeholder 의 갯수를 합친 값. 결과가 사용되도록 Blackhole 에 넘기기 위한 값이다.
+     */
+    static long generateSql(Query query, MethodImpl.ParamInfo[] paramInfos, Object[] args) {
+        try (MapperContext mapperContext = MapperContext.of(paramInfos, args)) {
+            String sql = query.generateSql(mapperContext);
+            return sql.length() + mapperContext.getBindSet().size();
+        }
+    }
+}
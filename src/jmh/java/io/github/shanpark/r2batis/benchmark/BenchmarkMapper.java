@@ -0,0 +1,19 @@
+package io.github.shanpark.r2batis.benchmark;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * benchmark 용 mapper 인터페이스. 쿼리는 mapper/BenchmarkMapper.xml 에 정의되어 있다.
+ * 실제 DB 에 연결하지 않으므로 bean 으로 등록되지 않고 Query, MethodImpl 을 직접 만들 때만 사용된다.
+ */
+public interface BenchmarkMapper {
+    Mono<NarrowVo> findCustomer(Long id, String name);
+    Flux<NarrowVo> searchCustomers(CustomerSearch search);
+    Mono<Long> updateCustomer(WideVo customer);
+    Mono<Long> deleteCustomer(Long id, String name);
+    Flux<NarrowVo> findByIds(List<Long> ids);
+    Flux<NarrowVo> findByIdsFiltered(List<Long> ids);
+}
@@ -0,0 +1,50 @@
+package io.github.shanpark.r2batis.benchmark;
+
+import io.github.shanpark.r2batis.core.MethodImpl;
+import org.openjdk.jmh.annotations.*;
+import org.reactivestreams.Publisher;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MethodImpl을 통한 SQL 생성과 placeholder binding 성능 측정.
+ * MethodImpl.execBodySql()은 SQL을 생성하고 DatabaseClient에 값을 bind 한 Publisher를 반환하며 subscribe 하기 전에는 DB에 접근하지 않는다.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BindingBenchmark {
+
+    private MethodImpl staticMethodImpl;
+    private Object[] staticArgs;
+
+    private MethodImpl dynamicMethodImpl;
+    private Object[] dynamicArgs;
+
+    @Setup
+    public void setup() {
+        staticMethodImpl = BenchmarkFixtures.methodImpl("deleteCustomer");
+        staticArgs = new Object[]{ 1L, "r2batis" };
+
+        WideVo customer = new WideVo();
+        customer.setId(1L);
+        customer.setName("r2batis");
+        customer.setEmail("r2batis@example.com");
+        customer.setAge(30);
+        dynamicMethodImpl = BenchmarkFixtures.methodImpl("updateCustomer");
+        dynamicArgs = new Object[]{ customer };
+    }
+
+    @Benchmark
+    public Publisher<?> staticSql() {
+        return staticMethodImpl.execBodySql(BenchmarkFixtures.DATABASE_CLIENT, staticArgs);
+    }
+
+    @Benchmark
+    public Publisher<?> dynamicSql() {
+        return dynamicMethodImpl.execBodySql(BenchmarkFixtures.DATABASE_CLIENT, dynamicArgs);
+    }
+}
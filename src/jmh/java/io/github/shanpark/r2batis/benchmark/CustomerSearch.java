@@ -0,0 +1,31 @@
+package io.github.shanpark.r2batis.benchmark;
+
+public class CustomerSearch {
+    private final String name;
+    private final String email;
+    private final Integer minAge;
+    private final boolean orderByName;
+
+    public CustomerSearch(String name, String email, Integer minAge, boolean orderByName) {
+        this.name = name;
+        this.email = email;
+        this.minAge = minAge;
+        this.orderByName = orderByName;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public Integer getMinAge() {
+        return minAge;
+    }
+
+    public boolean isOrderByName() {
+        return orderByName;
+    }
+}
@@ -0,0 +1,52 @@
+package io.github.shanpark.r2batis.benchmark;
+
+import io.github.shanpark.r2batis.core.MethodImpl;
+import io.github.shanpark.r2batis.mapper.Query;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code <foreach>}의 SQL 생성 성능 측정. 요소 갯수에 따라 선형으로 늘어나는 지 확인한다.
+ * 요소 마다 {@code <if>}를 평가하는 경우도 측정한다.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ForeachBenchmark {
+
+    @Param({"10", "1000", "50000"})
+    private int size;
+
+    private Query foreachQuery;
+    private Query filteredQuery;
+    private MethodImpl.ParamInfo[] paramInfos;
+    private Object[] args;
+
+    @Setup
+    public void setup() {
+        foreachQuery = BenchmarkFixtures.query("findByIds");
+        filteredQuery = BenchmarkFixtures.query("findByIdsFiltered");
+        paramInfos = BenchmarkFixtures.paramInfos("findByIds");
+
+        List<Long> ids = new ArrayList<>(size);
+        for (long id = 0; id < size; id++)
+            ids.add(id);
+        args = new Object[]{ ids };
+    }
+
+    @Benchmark
+    public long foreach() {
+        return BenchmarkFixtures.generateSql(foreachQuery, paramInfos, args);
+    }
+
+    @Benchmark
+    public long foreachWithIf() {
+        return BenchmarkFixtures.generateSql(filteredQuery, paramInfos, args);
+    }
+}
@@ -0,0 +1,7 @@
+package io.github.shanpark.r2batis.benchmark;
+
+public class NarrowVo {
+    private Long id;
+    private String name;
+    private String email;
+}
@@ -0,0 +1,75 @@
+package io.github.shanpark.r2batis.benchmark;
+
+import io.github.shanpark.r2batis.core.ResultMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ResultMapper 의 성능 측정. 컬럼이 3개인 행과 20개인 행을 객체로 변환한다.
+ * 실제 조회와 같이 같은 RowMetadata 를 갖는 행들을 하나의 ResultMapper 로 변환하므로 MappingPlan 은 처음 한 번만 찾는다.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResultMappingBenchmark {
+
+    private StubRow narrowRow;
+    private StubRow wideRow;
+    private ResultMapper narrowMapper;
+    private ResultMapper wideMapper;
+
+    @Setup
+    public void setup() {
+        Map<String, Object> narrowRow = new LinkedHashMap<>();
+        narrowRow.put("id", 1L);
+        narrowRow.put("name", "r2batis");
+        narrowRow.put("email", "r2batis@example.com");
+
+        LocalDateTime now = LocalDateTime.of(2024, 1, 2, 3, 4, 5);
+        Map<String, Object> wideRow = new LinkedHashMap<>();
+        wideRow.put("id", 1L);
+        wideRow.put("name", "r2batis");
+        wideRow.put("email", "r2batis@example.com");
+        wideRow.put("age", 30);
+        wideRow.put("phone", "010-0000-0000");
+        wideRow.put("address1", "address1");
+        wideRow.put("address2", "address2");
+        wideRow.put("city", "Seoul");
+        wideRow.put("zipCode", "00000");
+        wideRow.put("country", "KR");
+        wideRow.put("active", true);
+        wideRow.put("grade", 3L); // DB 드라이버가 다른 숫자 타입으로 주는 경우처럼 변환이 필요하도록 한다.
+        wideRow.put("point", 1000);
+        wideRow.put("rating", 4.5f);
+        wideRow.put("balance", new BigDecimal("12345.67"));
+        wideRow.put("birthDate", LocalDate.of(1990, 1, 1));
+        wideRow.put("createdAt", now);
+        wideRow.put("updatedAt", now);
+        wideRow.put("memo", "memo");
+        wideRow.put("status", "A");
+
+        this.narrowRow = new StubRow(narrowRow);
+        this.wideRow = new StubRow(wideRow);
+        narrowMapper = new ResultMapper(NarrowVo.class, false);
+        wideMapper = new ResultMapper(WideVo.class, false);
+    }
+
+    @Benchmark
+    public Object narrow() {
+        return narrowMapper.apply(narrowRow, narrowRow.getMetadata());
+    }
+
+    @Benchmark
+    public Object wide() {
+        return wideMapper.apply(wideRow, wideRow.getMetadata());
+    }
+}
@@ -0,0 +1,73 @@
+package io.github.shanpark.r2batis.benchmark;
+
+import io.github.shanpark.r2batis.core.MethodImpl;
+import io.github.shanpark.r2batis.mapper.Query;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query.generateSql()의 성능 측정.
+ * 정적 SQL과 {@code <if>}, {@code <choose>}, {@code <trim>}, {@code <where>}, {@code <set>} 을 사용하는 동적 SQL을 측정한다.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SqlGenerationBenchmark {
+
+    private Query staticQuery;
+    private MethodImpl.ParamInfo[] staticParamInfos;
+    private Object[] staticArgs;
+
+    private Query searchQuery;
+    private MethodImpl.ParamInfo[] searchParamInfos;
+    private Object[] fullSearchArgs;
+    private Object[] emptySearchArgs;
+
+    private Query updateQuery;
+    private MethodImpl.ParamInfo[] updateParamInfos;
+    private Object[] updateArgs;
+
+    @Setup
+    public void setup() {
+        staticQuery = BenchmarkFixtures.query("findCustomer");
+        staticParamInfos = BenchmarkFixtures.paramInfos("findCustomer");
+        staticArgs = new Object[]{ 1L, "r2batis" };
+
+        searchQuery = BenchmarkFixtures.query("searchCustomers");
+        searchParamInfos = BenchmarkFixtures.paramInfos("searchCustomers");
+        fullSearchArgs = new Object[]{ new CustomerSearch("r2batis", "r2batis@example.com", 20, true) };
+        emptySearchArgs = new Object[]{ new CustomerSearch(null, null, null, false) };
+
+        WideVo customer = new WideVo();
+        customer.setId(1L);
+        customer.setName("r2batis");
+        customer.setAge(30);
+        updateQuery = BenchmarkFixtures.query("updateCustomer");
+        updateParamInfos = BenchmarkFixtures.paramInfos("updateCustomer");
+        updateArgs = new Object[]{ customer };
+    }
+
+    @Benchmark
+    public long staticSql() {
+        return BenchmarkFixtures.generateSql(staticQuery, staticParamInfos, staticArgs);
+    }
+
+    @Benchmark
+    public long dynamicSelectAllConditions() {
+        return BenchmarkFixtures.generateSql(searchQuery, searchParamInfos, fullSearchArgs);
+    }
+
+    @Benchmark
+    public long dynamicSelectNoCondition() {
+        return BenchmarkFixtures.generateSql(searchQuery, searchParamInfos, emptySearchArgs);
+    }
+
+    @Benchmark
+    public long dynamicUpdate() {
+        return BenchmarkFixtures.generateSql(updateQuery, updateParamInfos, updateArgs);
+    }
+}
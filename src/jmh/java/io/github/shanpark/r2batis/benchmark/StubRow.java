@@ -0,0 +1,94 @@
+package io.github.shanpark.r2batis.benchmark;
+
+import io.r2dbc.spi.ColumnMetadata;
+import io.r2dbc.spi.R2dbcType;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import io.r2dbc.spi.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * DB 연결 없이 ResultMapper 를 측정하기 위한 Row. 미리 정해진 값들을 컬럼 위치나 이름으로 돌려준다.
+ * 드라이버의 Row 처럼 하나의 결과에 속한 행들은 같은 RowMetadata 객체를 공유한다.
+ */
+final class StubRow implements Row {
+
+    private final Metadata metadata;
+    private final Object[] values;
+
+    /**
+     * @param columns 컬럼 이름과 값. 순서대로 컬럼 위치가 정해진다.
+     */
+    StubRow(Map<String, Object> columns) {
+        this.metadata = new Metadata(new ArrayList<>(columns.keySet()));
+        this.values = columns.values().toArray();
+    }
+
+    @Override
+    public RowMetadata getMetadata() {
+        return metadata;
+    }
+
+    @Override
+    public <T> T get(int index, Class<T> type) {
+        return type.cast(values[index]);
+    }
+
+    @Override
+    public <T> T get(String name, Class<T> type) {
+        return get(metadata.indexOf(name), type);
+    }
+
+    @Override
+    public Object get(int index) {
+        return values[index];
+    }
+
+    private static final class Metadata implements RowMetadata {
+        private final List<Column> columns = new ArrayList<>();
+
+        private Metadata(List<String> names) {
+            for (String name : names)
+                columns.add(new Column(name));
+        }
+
+        private int indexOf(String name) {
+            for (int inx = 0; inx < columns.size(); inx++) {
+                if (columns.get(inx).getName().equalsIgnoreCase(name))
+                    return inx;
+            }
+            throw new NoSuchElementException("No column: " + name);
+        }
+
+        @Override
+        public ColumnMetadata getColumnMetadata(int index) {
+            return columns.get(index);
+        }
+
+        @Override
+        public ColumnMetadata getColumnMetadata(String name) {
+            return columns.get(indexOf(name));
+        }
+
+        @Override
+        public List<? extends ColumnMetadata> getColumnMetadatas() {
+            return columns;
+        }
+    }
+
+    private record Column(String name) implements ColumnMetadata {
+        @Override
+        public Type getType() {
+            return R2dbcType.VARCHAR; // ResultMapper 는 컬럼 이름만 사용한다.
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+}
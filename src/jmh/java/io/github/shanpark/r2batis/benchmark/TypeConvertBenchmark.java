@@ -0,0 +1,52 @@
+package io.github.shanpark.r2batis.benchmark;
+
+import io.github.shanpark.r2batis.util.TypeUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.*;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TypeUtils.convert()의 성능 측정. TypeHandler 마다 대표적인 변환 하나씩을 측정한다.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TypeConvertBenchmark {
+
+    @Param({"Character", "Boolean", "String", "Date", "SqlDate", "ZonedDateTime", "LocalDateTime", "LocalDate", "Instant", "Number", "BigDecimal", "Identity"})
+    private String handler;
+
+    private Object value;
+    private Class<?> targetClass;
+
+    @Setup
+    public void setup() {
+        LocalDateTime now = LocalDateTime.of(2024, 1, 2, 3, 4, 5);
+        switch (handler) {
+            case "Character" -> { value = 'T'; targetClass = String.class; }
+            case "Boolean" -> { value = Boolean.TRUE; targetClass = Integer.class; }
+            case "String" -> { value = "1234567890"; targetClass = Long.class; }
+            case "Date" -> { value = new Date(); targetClass = LocalDateTime.class; }
+            case "SqlDate" -> { value = java.sql.Date.valueOf(now.toLocalDate()); targetClass = LocalDate.class; }
+            case "ZonedDateTime" -> { value = now.atZone(ZoneId.systemDefault()); targetClass = LocalDateTime.class; }
+            case "LocalDateTime" -> { value = now; targetClass = Instant.class; }
+            case "LocalDate" -> { value = now.toLocalDate(); targetClass = LocalDateTime.class; }
+            case "Instant" -> { value = now.toInstant(ZoneOffset.UTC); targetClass = LocalDateTime.class; }
+            case "Number" -> { value = 1234L; targetClass = Integer.class; }
+            case "BigDecimal" -> { value = new BigDecimal("1234.5678"); targetClass = Double.class; }
+            case "Identity" -> { value = 1234L; targetClass = Long.class; } // handler 를 거치지 않는 경우.
+            default -> throw new IllegalArgumentException(handler);
+        }
+    }
+
+    @Benchmark
+    public Object convert() {
+        return TypeUtils.convert(value, targetClass);
+    }
+}
@@ -0,0 +1,28 @@
+package io.github.shanpark.r2batis.loadtest;
+
+public class Item {
+    private Long id;
+    private String name;
+    private Integer price;
+
+    public Item() {
+    }
+
+    public Item(Long id, String name, Integer price) {
+        this.id = id;
+        this.name = name;
+        this.price = price;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Integer getPrice() {
+        return price;
+    }
+}
@@ -0,0 +1,15 @@
+package io.github.shanpark.r2batis.loadtest;
+
+import io.github.shanpark.r2batis.annotation.R2batisMapper;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@R2batisMapper
+public interface ItemMapper {
+    Mono<Item> findById(Long id);
+    Flux<Item> findByPrice(Integer minPrice, Integer maxPrice);
+    Flux<Item> findByIds(List<Long> ids);
+    Mono<Long> updatePrice(Long id, Integer price);
+}
@@ -0,0 +1,191 @@
+package io.github.shanpark.r2batis.loadtest;
+
+import io.r2dbc.spi.Readable;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * embedded H2 (r2dbc-h2) 를 대상으로 mapper 메소드를 끝에서 끝까지 실행하면서 처리량과 latency 백분위를 측정한다.
+ * 같은 SQL을 DatabaseClient로 직접 실행한 결과도 함께 측정해서 r2batis가 더하는 비용을 비교할 수 있도록 한다.
+ *
+ * ./gradlew loadTest -PloadConcurrency=1,16,64 -PloadDuration=10 로 실행하며 결과는 JSON 파일로 저장된다.
+ *
+ * 인자 (모두 --name=value 형식이며 생략 가능)
+ *   concurrency : ','로 구분된 동시성 목록. (기본값 1,8,32)
+ *   warmup      : 측정 전 warmup 시간(초). (기본값 3)
+ *   duration    : 측정 시간(초). (기본값 10)
+ *   rows        : 테이블에 미리 넣어둘 행의 수. (기본값 10000)
+ *   scenarios   : ','로 구분된 실행할 시나리오 이름 목록. (기본값 모두)
+ *   output      : 결과 JSON 파일 경로. (기본값 build/results/loadTest/results.json)
+ */
+public class LoadHarness {
+
+    private static final String SELECT_ITEM = "SELECT id, name, price FROM item ";
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = parseOptions(args);
+        int[] concurrencies = Arrays.stream(options.getOrDefault("concurrency", "1,8,32").split(","))
+                .map(String::trim)
+                .mapToInt(Integer::parseInt)
+                .toArray();
+        Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "3")));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "10")));
+        int rows = Integer.parseInt(options.getOrDefault("rows", "10000"));
+        Set<String> selected = options.containsKey("scenarios") ?
+                Arrays.stream(options.get("scenarios").split(",")).map(String::trim).collect(Collectors.toSet()) : null;
+        Path output = Path.of(options.getOrDefault("output", "build/results/loadTest/results.json"));
+
+        int maxConcurrency = Arrays.stream(concurrencies).max().orElse(1);
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(LoadTestApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        // DATABASE_TO_LOWER: 컬럼 이름이 소문자로 반환되어야 결과 클래스의 필드와 매핑된다.
+                        "spring.r2dbc.url=r2dbc:h2:mem:///r2batis_load?options=DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE",
+                        "spring.r2dbc.pool.initial-size=" + maxConcurrency,
+                        "spring.r2dbc.pool.max-size=" + maxConcurrency,
+                        "logging.level.root=WARN")
+                .run()) {
+            DatabaseClient databaseClient = context.getBean(DatabaseClient.class);
+            ItemMapper itemMapper = context.getBean(ItemMapper.class);
+
+            prepareTable(databaseClient, rows);
+
+            List<Scenario> scenarios = scenarios(itemMapper, databaseClient, rows).stream()
+                    .filter(scenario -> selected == null || selected.contains(scenario.name()))
+                    .toList();
+
+            StringBuilder json = new StringBuilder();
+            json.append("{\n");
+            json.append("  \"timestamp\": \"").append(Instant.now()).append("\",\n");
+            json.append("  \"javaVersion\": \"").append(System.getProperty("java.version")).append("\",\n");
+            json.append("  \"warmupSeconds\": ").append(warmup.toSeconds()).append(",\n");
+            json.append("  \"durationSeconds\": ").append(duration.toSeconds()).append(",\n");
+            json.append("  \"rows\": ").append(rows).append(",\n");
+            json.append("  \"results\": [");
+            String separator = "\n";
+            for (int concurrency : concurrencies) {
+                LoadRunner runner = new LoadRunner(concurrency, warmup, duration);
+                for (Scenario scenario : scenarios) {
+                    LoadResult r2batis = runner.run(scenario.r2batis());
+                    LoadResult databaseClientResult = runner.run(scenario.databaseClient());
+                    double overhead = databaseClientResult.getOpsPerSec() > 0 ?
+                            (1d - r2batis.getOpsPerSec() / databaseClientResult.getOpsPerSec()) * 100d : 0d;
+
+                    System.out.printf(Locale.ROOT, "%-12s c=%-4d r2batis %10.1f ops/s (p99 %8.1fus)  databaseClient %10.1f ops/s (p99 %8.1fus)  overhead %5.1f%%%n",
+                            scenario.name(), concurrency,
+                            r2batis.getOpsPerSec(), r2batis.percentileMicros(99),
+                            databaseClientResult.getOpsPerSec(), databaseClientResult.percentileMicros(99),
+                            overhead);
+
+                    json.append(separator);
+                    json.append("    {\"scenario\": \"").append(scenario.name()).append("\", \"concurrency\": ").append(concurrency).append(",\n");
+                    json.append("     \"r2batis\": ").append(r2batis.toJson()).append(",\n");
+                    json.append("     \"databaseClient\": ").append(databaseClientResult.toJson()).append(",\n");
+                    json.append("     \"throughputOverheadPercent\": ").append(String.format(Locale.ROOT, "%.1f", overhead)).append("}");
+                    separator = ",\n";
+                }
+            }
+            json.append("\n  ]\n}\n");
+
+            if (output.getParent() != null)
+                Files.createDirectories(output.getParent());
+            Files.writeString(output, json);
+            System.out.println("Results written to " + output.toAbsolutePath());
+        }
+    }
+
+    /**
+     * mapper 메소드와 같은 SQL을 DatabaseClient로 직접 실행하는 operation을 짝으로 갖는 시나리오들을 생성한다.
+     * operation은 실행 순번을 받아서 조회할 id 등을 결정한다.
+     */
+    private static List<Scenario> scenarios(ItemMapper itemMapper, DatabaseClient databaseClient, int rows) {
+        List<Scenario> scenarios = new ArrayList<>();
+
+        scenarios.add(new Scenario("findById",
+                seq -> itemMapper.findById(idOf(seq, rows)),
+                seq -> databaseClient.sql(SELECT_ITEM + "WHERE id = :id")
+                        .bind("id", idOf(seq, rows))
+                        .map(LoadHarness::toItem)
+                        .one()));
+
+        scenarios.add(new Scenario("findByPrice",
+                seq -> itemMapper.findByPrice(seq % 900, seq % 900 + 100),
+                seq -> databaseClient.sql(SELECT_ITEM + "WHERE price >= :minPrice AND price < :maxPrice ORDER BY id LIMIT 20")
+                        .bind("minPrice", seq % 900)
+                        .bind("maxPrice", seq % 900 + 100)
+                        .map(LoadHarness::toItem)
+                        .all()));
+
+        scenarios.add(new Scenario("findByIds",
+                seq -> itemMapper.findByIds(idsOf(seq, rows)),
+                seq -> databaseClient.sql(SELECT_ITEM + "WHERE id IN (:ids)") // DatabaseClient는 Collection 값을 bind marker 목록으로 펼친다.
+                        .bind("ids", idsOf(seq, rows))
+                        .map(LoadHarness::toItem)
+                        .all()));
+
+        scenarios.add(new Scenario("updatePrice",
+                seq -> itemMapper.updatePrice(idOf(seq, rows), seq % 1000),
+                seq -> databaseClient.sql("UPDATE item SET price = :price WHERE id = :id")
+                        .bind("price", seq % 1000)
+                        .bind("id", idOf(seq, rows))
+                        .fetch()
+                        .rowsUpdated()));
+
+        return scenarios;
+    }
+
+    private static void prepareTable(DatabaseClient databaseClient, int rows) {
+        databaseClient.sql("CREATE TABLE item (id BIGINT PRIMARY KEY, name VARCHAR(64), price INT)")
+                .then()
+                .block();
+        Flux.range(1, rows)
+                .concatMap(id -> databaseClient.sql("INSERT INTO item (id, name, price) VALUES (:id, :name, :price)")
+                        .bind("id", (long) id)
+                        .bind("name", "item-" + id)
+                        .bind("price", id % 1000)
+                        .then())
+                .then()
+                .block();
+    }
+
+    private static Item toItem(Readable row) {
+        return new Item(row.get("id", Long.class), row.get("name", String.class), row.get("price", Integer.class));
+    }
+
+    private static Long idOf(int seq, int rows) {
+        return (long) (seq % rows) + 1;
+    }
+
+    private static List<Long> idsOf(int seq, int rows) {
+        List<Long> ids = new ArrayList<>(10);
+        for (int inx = 0; inx < 10; inx++)
+            ids.add(idOf(seq * 10 + inx, rows));
+        return ids;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("="))
+                throw new IllegalArgumentException("Arguments must be in the form --name=value. [" + arg + "]");
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+
+    private record Scenario(String name, IntFunction<Publisher<?>> r2batis, IntFunction<Publisher<?>> databaseClient) {
+    }
+}
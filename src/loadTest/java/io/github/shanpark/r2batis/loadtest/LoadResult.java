@@ -0,0 +1,47 @@
+package io.github.shanpark.r2batis.loadtest;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * 한 시나리오를 한 가지 방식(r2batis 또는 DatabaseClient)으로 실행한 결과.
+ * 처리량과 함께 latency 분포의 백분위 값들을 갖는다.
+ */
+public class LoadResult {
+
+    private final long operations;
+    private final long errors;
+    private final double opsPerSec;
+    private final long[] latencies; // 정렬된 latency 값들. (nano seconds)
+
+    public LoadResult(long[] latencies, int count, long errors, long elapsedNanos) {
+        this.latencies = Arrays.copyOf(latencies, count);
+        Arrays.sort(this.latencies);
+        this.operations = count;
+        this.errors = errors;
+        this.opsPerSec = elapsedNanos > 0 ? count * 1_000_000_000d / elapsedNanos : 0d;
+    }
+
+    public double getOpsPerSec() {
+        return opsPerSec;
+    }
+
+    /**
+     * percentile 위치의 latency를 micro seconds 단위로 반환한다.
+     *
+     * @param percentile 0 ~ 100 사이의 값.
+     */
+    public double percentileMicros(double percentile) {
+        if (latencies.length == 0)
+            return 0d;
+        int index = (int) Math.ceil(percentile / 100d * latencies.length) - 1;
+        return latencies[Math.max(0, Math.min(index, latencies.length - 1))] / 1_000d;
+    }
+
+    public String toJson() {
+        return String.format(Locale.ROOT,
+                "{\"operations\": %d, \"errors\": %d, \"opsPerSec\": %.1f, \"latencyMicros\": {\"p50\": %.1f, \"p90\": %.1f, \"p99\": %.1f, \"p999\": %.1f, \"max\": %.1f}}",
+                operations, errors, opsPerSec,
+                percentileMicros(50), percentileMicros(90), percentileMicros(99), percentileMicros(99.9), percentileMicros(100));
+    }
+}
@@ -0,0 +1,69 @@
+package io.github.shanpark.r2batis.loadtest;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * 하나의 operation을 지정된 동시성으로 지정된 시간 동안 반복 실행하면서 operation 마다 latency를 측정한다.
+ * operation은 반환한 Publisher가 complete 될 때 끝난 것으로 본다.
+ */
+public class LoadRunner {
+
+    private final int concurrency;
+    private final Duration warmup;
+    private final Duration duration;
+
+    public LoadRunner(int concurrency, Duration warmup, Duration duration) {
+        this.concurrency = concurrency;
+        this.warmup = warmup;
+        this.duration = duration;
+    }
+
+    public LoadResult run(IntFunction<Publisher<?>> operation) {
+        execute(operation, warmup); // JIT, connection pool 등이 안정되도록 결과를 버리는 실행을 먼저 한다.
+        return execute(operation, duration);
+    }
+
+    private LoadResult execute(IntFunction<Publisher<?>> operation, Duration period) {
+        AtomicLong errors = new AtomicLong();
+        LatencyBuffer buffer = new LatencyBuffer();
+
+        long start = System.nanoTime();
+        Flux.range(0, Integer.MAX_VALUE)
+                .flatMap(seq -> timed(operation, seq, errors), concurrency, 1)
+                .take(period)
+                .doOnNext(buffer::add) // flatMap이 onNext를 직렬화하므로 buffer는 동기화할 필요가 없다.
+                .blockLast();
+        long elapsed = System.nanoTime() - start;
+
+        return new LoadResult(buffer.values, buffer.count, errors.get(), elapsed);
+    }
+
+    private Mono<Long> timed(IntFunction<Publisher<?>> operation, int seq, AtomicLong errors) {
+        return Mono.defer(() -> {
+            long begin = System.nanoTime();
+            return Flux.from(operation.apply(seq))
+                    .then(Mono.fromSupplier(() -> System.nanoTime() - begin));
+        }).onErrorResume(e -> {
+            errors.incrementAndGet();
+            return Mono.empty();
+        });
+    }
+
+    private static class LatencyBuffer {
+        private long[] values = new long[1 << 16];
+        private int count;
+
+        void add(long latency) {
+            if (count == values.length)
+                values = Arrays.copyOf(values, values.length * 2);
+            values[count++] = latency;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package io.github.shanpark.r2batis.loadtest;
+
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+/**
+ * load harness 가 띄우는 최소한의 Spring Boot 애플리케이션.
+ * 실제 애플리케이션과 같은 경로(auto configuration, R2batisBeanPostProcessor)로 mapper bean 이 생성되도록 한다.
+ */
+@SpringBootApplication
+public class LoadTestApplication {
+}
@@ -13,6 +13,11 @@ public class R2batisAutoConfiguration {
 
     public static R2batisProperties defaultR2batisProperties;
 
+    /**
+     * 예전에 Gradle test 시 main 클래스 디렉토리를 찾기 위해 사용되었다.
+     * 이제는 classpath 전체에서 mapper 인터페이스를 찾으므로 사용되지 않지만 설정하는 코드가 깨지지 않도록 남겨둔다.
+     */
+    @Deprecated
     public static boolean isTesting = false;
 
     @Bean
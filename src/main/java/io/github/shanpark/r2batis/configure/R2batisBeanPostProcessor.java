@@ -2,33 +2,45 @@ package io.github.shanpark.r2batis.configure;
 
 import io.github.shanpark.r2batis.annotation.R2batisMapper;
 import io.github.shanpark.r2batis.core.InterfaceImpl;
+import io.github.shanpark.r2batis.core.MapperInvocationHandler;
 import io.github.shanpark.r2batis.core.R2batisProperties;
+import io.github.shanpark.r2batis.exception.MapperParsingException;
 import io.github.shanpark.r2batis.mapper.Mapper;
+import io.github.shanpark.r2batis.mapper.XmlMapperParser;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.boot.autoconfigure.AutoConfigurationPackages;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.util.ClassUtils;
 
-import java.io.File;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.lang.reflect.Proxy;
-import java.net.URI;
-import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
-import java.util.jar.Manifest;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Slf4j
 public class R2batisBeanPostProcessor implements BeanPostProcessor {
 
+    private static final String MAPPER_INDEX_LOCATION = "META-INF/r2batis/mappers"; // r2batis-processor가 생성하는 mapper 인터페이스 목록.
+
     private final ApplicationContext applicationContext;
 
     public R2batisBeanPostProcessor(ApplicationContext applicationContext) {
@@ -44,10 +56,8 @@ public class R2batisBeanPostProcessor implements BeanPostProcessor {
                     createDefaultR2batisProperties();
 
                     // 여기서는 @R2batisMapper 가 지정된 interface만 찾아서 bean으로 일단 등록해준다.
-                    Map<String, Mapper> mapperXmlCache = new HashMap<>(); // 로컬에서 캐쉬 버퍼로 사용되고 버린다. 초기화 완료 후 버린다.
                     List<Class<?>> mapperInterfaceClasses = scanMapperInterface();
-                    for (Class<?> interfaceClass : mapperInterfaceClasses)
-                        createR2dbcBean(((ConfigurableApplicationContext) applicationContext).getBeanFactory(), interfaceClass, mapperXmlCache);
+                    createR2dbcBeans(((ConfigurableApplicationContext) applicationContext).getBeanFactory(), mapperInterfaceClasses);
                 }
             }
         }
@@ -78,167 +88,189 @@ public class R2batisBeanPostProcessor implements BeanPostProcessor {
 
     /**
      * {@code @R2dbcMapper} 어노테이션이 붙어있는 인터페이스를 찾는다.
+     * class 파일을 로딩하지 않고 class 파일의 metadata(ASM 기반의 MetadataReader)만 읽어서 어노테이션을 확인하므로
+     * 어노테이션이 붙은 인터페이스만 로딩되며 그 외의 클래스들의 static initializer 도 실행되지 않는다.
+     * 디렉토리, jar 파일 구분없이 classpath 전체에서 찾는다.
+     * r2batis-processor가 생성한 META-INF/r2batis/mappers 목록이 있으면 그 목록이 있는 classpath root(디렉토리, jar)는
+     * scan 하지 않고 목록을 사용한다. 목록이 없는 나머지 root 들은 그대로 scan 한다.
      *
      * @return @R2dbcMapper 어노테이션이 붙어있는 인터페이스의 Class 객체 리스트 반환.
      */
     private List<Class<?>> scanMapperInterface() {
+        ClassLoader classLoader = R2batisAutoConfiguration.class.getClassLoader();
         List<String> autoConfigurationPackages = AutoConfigurationPackages.get(applicationContext.getAutowireCapableBeanFactory());
+        Set<String> classNames = new LinkedHashSet<>(); // 패키지가 겹쳐서 지정되어도 한 번만 로딩한다.
+        Set<String> indexedRoots = findIndexedMapperNames(autoConfigurationPackages, classLoader, classNames);
+        classNames.addAll(scanMapperNames(autoConfigurationPackages, indexedRoots));
+
         List<Class<?>> mapperInterfaceList = new ArrayList<>();
-        for (String packageName : autoConfigurationPackages) {
-            String packagePath = packageName.replace(".", "/");
+        for (String className : classNames) {
             try {
-                URL packageUrl = R2batisAutoConfiguration.class.getClassLoader().getResource(packagePath);
-                if (packageUrl != null) {
-                    URI packageUri = packageUrl.toURI(); // URI로 변환해서 사용하는 것이 안전하다. URL은 몇몇 문제가 있다.
-                    if (packageUri.getScheme().equals("jar")) {
-                        mapperInterfaceList.addAll(scanMapperInterfaceInJar(packageUri));
-                    } else {
-                        String packageDirectoryPath = packageUri.getPath();
-
-                        //>>> for Gradle Test
-                        // test 클래스의 생성자에서 isTesting을 true로 변경해주면 동작한다.
-                        if (R2batisAutoConfiguration.isTesting && packageDirectoryPath.contains("/classes/java/test/")) // test시 경로 확인 방법은?
-                            packageDirectoryPath = packageDirectoryPath.replace("/classes/java/test/", "/classes/java/main/");
-                        //<<< for Gradle Test
-
-                        if (packageDirectoryPath != null) {
-                            File packageDir = new File(packageDirectoryPath);
-                            if (packageDir.isDirectory())
-                                mapperInterfaceList.addAll(scanMapperInterfaceInDir(packageName, packageDir));
-                        }
-                        // else // URI에서 path가 나오지 않으면 디렉토리는 아니므로 무시한다.
-                    }
-                } else {
-                    throw new RuntimeException(String.format("There is no package[%s].", packageName)); // AutoConfigurationPackages 가 반환한 package가 존재하지 않는다는 뜻이다. 심각한 에러이므로 그냥 던진다.
-                }
-            } catch (URISyntaxException e) {
-                throw new RuntimeException(e); // 심각한 에러이므로 그냥 던진다.
+                mapperInterfaceList.add(ClassUtils.forName(className, classLoader)); // 초기화하지 않고 로딩만 한다.
+            } catch (ClassNotFoundException | LinkageError e) {
+                log.warn("The mapper interface '{}' could not be loaded.", className, e);
             }
         }
-
         return mapperInterfaceList;
     }
 
-    private List<Class<?>> scanMapperInterfaceInDir(String packageName, File dir) {
-        List<Class<?>> mapperInterfaceList = new ArrayList<>();
+    /**
+     * classpath에 있는 META-INF/r2batis/mappers 파일들에서 packages 아래에 있는 mapper 인터페이스의 이름들을 읽는다.
+     * 목록은 자신이 들어있는 classpath root의 인터페이스들만 포함하므로 목록을 읽은 root 들만 scan에서 제외할 수 있다.
+     * r2batis.index.ignore=true 로 설정하면 목록이 있어도 무시한다.
+     *
+     * @param classNames 읽은 인터페이스 이름들이 추가된다.
+     * @return 목록을 읽은 classpath root 들의 URL. 목록이 없거나 읽지 못했으면 빈 Set.
+     */
+    private Set<String> findIndexedMapperNames(List<String> packages, ClassLoader classLoader, Set<String> classNames) {
+        if (Boolean.parseBoolean(applicationContext.getEnvironment().getProperty("r2batis.index.ignore")))
+            return Set.of();
 
-        String[] files = dir.list();
-        if (files != null) {
-            for (String fileName : files) {
-                if (fileName.endsWith(".class")) {
-                    try {
-                        String className = fileName.substring(0, fileName.length() - 6);
-                        Class<?> clazz = Class.forName(packageName + "." + className);
-                        if (clazz.isInterface()) {
-                            if (clazz.isAnnotationPresent(R2batisMapper.class))
-                                mapperInterfaceList.add(clazz);
-                        }
-                    } catch (NoClassDefFoundError | ClassNotFoundException e) {
-                        // just ignore this class..
-                    }
-                } else {
-                    File file = new File(dir, fileName);
-                    if (file.isDirectory()) {
-                        mapperInterfaceList.addAll(scanMapperInterfaceInDir(packageName + "." + fileName, file));
+        Set<String> indexedRoots = new HashSet<>();
+        try {
+            Enumeration<URL> urls = classLoader.getResources(MAPPER_INDEX_LOCATION);
+            while (urls.hasMoreElements()) {
+                URL url = urls.nextElement();
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        String className = line.trim();
+                        if (!className.isEmpty() && packages.stream().anyMatch(pkg -> className.startsWith(pkg + ".")))
+                            classNames.add(className);
                     }
                 }
+                String location = url.toExternalForm();
+                indexedRoots.add(location.substring(0, location.length() - MAPPER_INDEX_LOCATION.length()));
             }
+            return indexedRoots;
+        } catch (IOException e) {
+            log.warn("Failed to read '{}'. The classpath will be scanned instead.", MAPPER_INDEX_LOCATION, e);
+            return Set.of();
         }
-
-        return mapperInterfaceList;
     }
 
-    private List<Class<?>> scanMapperInterfaceInJar(URI jarUri) throws URISyntaxException {
-        String schemeSpecificPart = jarUri.getSchemeSpecificPart(); // 여기까지 왔으면 jarUri 파라메터는 jar:~~~ 형식의 URI 이다.
-        String jarPath = schemeSpecificPart.substring(0, schemeSpecificPart.indexOf("!")); // jar:file:~~~!~~~ 에서 file:~~~ 부분을 떼어낸다.
-        jarUri = new URI(jarPath); // file:~~~ 로 URI 재생성.
-
-        List<Class<?>> mapperInterfaceList = new ArrayList<>();
-        try {
-            JarFile jarFile = new JarFile(new File(jarUri)); // if not jar file, will throw IOException.
-
-            List<String> ignorePrefixes = getClassPathesFromManifest(jarFile);
-
-            Enumeration<JarEntry> entries = jarFile.entries();
-            while (entries.hasMoreElements()) {
-                JarEntry entry = entries.nextElement();
-                String entryName = entry.getName();
-                if (!entry.isDirectory() && entryName.endsWith(".class")) {
-                    String className = getClassNameFromJarEntry(entryName, ignorePrefixes);
-                    try {
-                        Class<?> clazz = Class.forName(className);
-                        if (clazz.isInterface()) {
-                            if (clazz.isAnnotationPresent(R2batisMapper.class))
-                                mapperInterfaceList.add(clazz);
-                        }
-                    } catch (NoClassDefFoundError | ClassNotFoundException e) {
-                        // there is no such class. ignore.
-                    }
+    /**
+     * packages 아래에서 {@code @R2batisMapper} 인터페이스들을 scan 한다. indexedRoots 아래의 class 파일들은 읽지 않는다.
+     */
+    private Set<String> scanMapperNames(List<String> packages, Set<String> indexedRoots) {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false, applicationContext.getEnvironment()) {
+            @Override
+            protected boolean isCandidateComponent(AnnotatedBeanDefinition beanDefinition) {
+                return beanDefinition.getMetadata().isInterface(); // 기본 구현은 interface를 제외하므로 interface만 후보로 인정하도록 바꾼다.
+            }
+        };
+        scanner.setResourceLoader(indexedRoots.isEmpty() ? applicationContext : new ResourcePatternResolver() {
+            @Override
+            public Resource[] getResources(String locationPattern) throws IOException {
+                List<Resource> resources = new ArrayList<>();
+                for (Resource resource : applicationContext.getResources(locationPattern)) {
+                    String location = resource.getURL().toExternalForm();
+                    if (indexedRoots.stream().noneMatch(location::startsWith)) // 목록이 있는 root는 이미 목록에서 읽었다.
+                        resources.add(resource);
                 }
+                return resources.toArray(new Resource[0]);
             }
 
-            jarFile.close();
-        } catch (IOException e) {
-            // not a jar file. ignore.
-        }
+            @Override
+            public Resource getResource(String location) {
+                return applicationContext.getResource(location);
+            }
 
-        return mapperInterfaceList;
-    }
+            @Override
+            public ClassLoader getClassLoader() {
+                return applicationContext.getClassLoader();
+            }
+        });
+        scanner.addIncludeFilter(new AnnotationTypeFilter(R2batisMapper.class, false, false)); // getAnnotation()으로 읽을 수 있도록 직접 붙어있는 것만 찾는다.
 
-    /**
-     * Jar 파일의 Manifest에 선언된 class path 들을 가져온다.
-     * @param jarFile JarFile 객체.
-     * @return 수집된 class path List 객체
-     */
-    private List<String> getClassPathesFromManifest(JarFile jarFile) {
-        try {
-            Manifest manifest = jarFile.getManifest();
-            return Stream.of("Class-Path", "Spring-Boot-Classes") // Manifest에 class path를 지정하는 키값들이다. 이보다 더 있을 수 있다.
-                    .map(classpathKey -> manifest.getMainAttributes().getValue(classpathKey))
-                    .filter(classPath -> classPath != null && !classPath.isBlank())
-                    .collect(Collectors.toList());
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        Set<String> classNames = new LinkedHashSet<>();
+        for (String packageName : packages) {
+            for (BeanDefinition candidate : scanner.findCandidateComponents(packageName))
+                classNames.add(candidate.getBeanClassName());
         }
+        return classNames;
     }
 
     /**
-     * Jar 파일의 entry name으로부터 class의 full name을 가져온다.
-     * @param entryName Jar 파일의 entry name.
-     * @param ignorePrefixes class path 경로들을 갖는 List 객체.
-     * @return 최종적으로 변환된 class 의 full name.
+     * mapper interface 들을 구현하는 proxy instance 들을 생성하고 beanFactory에 등록해준다.
+     * 1. 각 interface의 InterfaceImpl을 생성하고 ConnectionFactory 등을 찾아서 초기화한다.
+     * 2. 모든 interface에서 사용하는 mapper xml 리소스들을 모아서 리소스 당 한 번씩 병렬로 분석한다.
+     * 3. 분석된 Mapper 들로 각 InterfaceImpl의 메소드들을 초기화하고 proxy를 생성해서 등록한다.
+     *
+     * @param beanFactory 스프링 부트가 제공하는 bean factory 객체.
+     * @param interfaceClasses 생성할 Bean들이 구현할 interface의 Class 객체들.
      */
-    private String getClassNameFromJarEntry(String entryName, List<String> ignorePrefixes) {
-        for (String ignorePrefix : ignorePrefixes) {
-            if (entryName.startsWith(ignorePrefix)) {
-                entryName = entryName.substring(ignorePrefix.length()); // entry는 전체 경로를 가지고 있으므로 앞에 붙은 class path 경로는 떼낸다.
-                break;
+    private void createR2dbcBeans(ConfigurableListableBeanFactory beanFactory, List<Class<?>> interfaceClasses) {
+        Map<Class<?>, InterfaceImpl> interfaceImpls = new LinkedHashMap<>();
+        Map<InterfaceImpl, Map<String, Resource>> mapperResourcesMap = new HashMap<>();
+        Map<String, Resource> allMapperResources = new LinkedHashMap<>();
+        for (Class<?> interfaceClass : interfaceClasses) {
+            R2batisMapper r2dbcAnnotation = interfaceClass.getAnnotation(R2batisMapper.class);
+            InterfaceImpl interfaceImpl = new InterfaceImpl(interfaceClass, r2dbcAnnotation.connectionFactory(), r2dbcAnnotation.r2batisProperties());
+            interfaceImpls.put(interfaceClass, interfaceImpl);
+
+            if (interfaceImpl.initialize(applicationContext)) {
+                Map<String, Resource> mapperResources = interfaceImpl.findMapperResources();
+                mapperResourcesMap.put(interfaceImpl, mapperResources);
+                allMapperResources.putAll(mapperResources); // 여러 interface가 같은 리소스를 사용해도 한 번만 분석된다.
             }
         }
 
-        return entryName.replace('/', '.').substring(0, entryName.length() - 6);
+        Map<String, Mapper> mapperXmlCache = parseMapperResources(allMapperResources); // 초기화 완료 후 버린다.
+
+        for (Map.Entry<Class<?>, InterfaceImpl> entry : interfaceImpls.entrySet()) {
+            Class<?> interfaceClass = entry.getKey();
+            InterfaceImpl interfaceImpl = entry.getValue();
+
+            Map<String, Resource> mapperResources = mapperResourcesMap.get(interfaceImpl);
+            if (mapperResources != null)
+                interfaceImpl.initializeMethods(applicationContext, mapperResources, mapperXmlCache);
+
+            Object bean = Proxy.newProxyInstance(
+                    interfaceClass.getClassLoader(),
+                    new Class<?>[]{interfaceClass},
+                    new MapperInvocationHandler(interfaceImpl)
+            );
+            beanFactory.registerSingleton(interfaceClass.getSimpleName(), bean);
+        }
     }
 
     /**
-     * interfaceClass 를 구현하는 proxy instance를 하나 생성하고 beanFactory에 등록해준다.
+     * mapper xml 리소스들을 병렬로 분석한다.
+     * 리소스 갯수와 CPU 갯수 중 작은 수의 thread를 갖는 pool을 사용하며 분석이 끝나면 pool은 종료된다.
      *
-     * @param beanFactory    스프링 부트가 제공하는 bean factory 객체.
-     * @param interfaceClass 생성할 Bean이 구현할 interface의 Class 객체.
-     * @param mapperXmlCache xml을 2번 parsing할 필요가 없기 때문에 이미 parsing된 Mapper 객체를 보관하여 재사용하기 위한 버퍼이다.
+     * @param mapperResources 분석할 리소스들. key는 분석된 Mapper를 캐슁할 때 key로 사용된다.
+     * @return key와 분석된 Mapper 객체를 담은 Map 객체.
      */
-    private void createR2dbcBean(ConfigurableListableBeanFactory beanFactory, Class<?> interfaceClass, Map<String, Mapper> mapperXmlCache) {
-        R2batisMapper r2dbcAnnotation = interfaceClass.getAnnotation(R2batisMapper.class);
-        String connectionFactoryName = r2dbcAnnotation.connectionFactory();
-        String r2batisPropertiesName = r2dbcAnnotation.r2batisProperties();
-
-        InterfaceImpl interfaceImpl = new InterfaceImpl(interfaceClass, connectionFactoryName, r2batisPropertiesName);
-        interfaceImpl.initialize(applicationContext, mapperXmlCache);
-
-        Object bean = Proxy.newProxyInstance(
-                interfaceClass.getClassLoader(),
-                new Class<?>[]{interfaceClass},
-                (proxy, method, args) -> interfaceImpl.invoke(method, args)
-        );
-        beanFactory.registerSingleton(interfaceClass.getSimpleName(), bean);
+    private Map<String, Mapper> parseMapperResources(Map<String, Resource> mapperResources) {
+        Map<String, Mapper> mapperXmlCache = new ConcurrentHashMap<>();
+        int threadCount = Math.min(mapperResources.size(), Runtime.getRuntime().availableProcessors());
+        if (threadCount <= 1) { // 굳이 thread를 만들 필요가 없다.
+            mapperResources.forEach((key, resource) -> mapperXmlCache.put(key, XmlMapperParser.parse(resource)));
+            return mapperXmlCache;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "r2batis-mapper-parser");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            mapperResources.forEach((key, resource) ->
+                    futures.add(executor.submit(() -> mapperXmlCache.put(key, XmlMapperParser.parse(resource)))));
+            for (Future<?> future : futures)
+                future.get();
+            return mapperXmlCache;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException)
+                throw runtimeException; // 분석 중 발생한 MapperParsingException, InvalidMapperElementException 등을 그대로 던진다.
+            throw new MapperParsingException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MapperParsingException(e);
+        } finally {
+            executor.shutdownNow();
+        }
     }
 }
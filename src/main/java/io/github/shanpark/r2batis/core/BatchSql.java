@@ -0,0 +1,118 @@
+package io.github.shanpark.r2batis.core;
+
+import io.github.shanpark.r2batis.exception.InvalidMapperElementException;
+import io.github.shanpark.r2batis.mapper.Sql;
+import io.github.shanpark.r2batis.util.TypeUtils;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Statement;
+import org.springframework.r2dbc.core.binding.BindMarker;
+import org.springframework.r2dbc.core.binding.BindMarkers;
+import org.springframework.r2dbc.core.binding.BindMarkersFactory;
+import org.springframework.r2dbc.core.binding.BindMarkersFactoryResolver;
+import org.springframework.r2dbc.core.binding.BindTarget;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * R2DBC Statement 에 직접 실행할 수 있도록 placeholder 를 DB 고유의 bind marker 로 변환한 SQL.
+ * DatabaseClient 를 거치지 않고 Statement.add()를 사용해서 여러 건의 binding 을 한 번에 실행할 때 사용된다.
+ * ':name' 형태의 placeholder 는 DatabaseClient 만 이해하기 때문에 직접 변환해줘야 한다.
+ * 모든 binding 이 하나의 SQL 문을 공유하므로 DatabaseClient 처럼 Collection 값을 {@code IN (:ids)} 형태로 전개할 수 없다.
+ */
+public class BatchSql {
+
+    private final String sql; // bind marker 로 변환된 SQL
+    private final BindMarker[] bindMarkers;
+    private final String[] placeholders; // bindMarkers 와 같은 순서.
+
+    /**
+     * SQL 문자열의 ':name' placeholder 들을 connectionFactory 에 맞는 bind marker 로 변환한다.
+     *
+     * @param namedSql ':name' 형태의 placeholder 를 사용하는 SQL.
+     * @param connectionFactory bind marker 형식을 결정할 ConnectionFactory 객체.
+     * @return 변환된 BatchSql 객체.
+     */
+    public static BatchSql of(String namedSql, ConnectionFactory connectionFactory) {
+        BindMarkersFactory bindMarkersFactory = BindMarkersFactoryResolver.resolve(connectionFactory);
+        BindMarkers bindMarkers = bindMarkersFactory.create();
+
+        StringBuilder sb = new StringBuilder();
+        List<BindMarker> markerList = new ArrayList<>();
+        List<String> placeholderList = new ArrayList<>();
+        Map<String, BindMarker> markerMap = new HashMap<>();
+
+        List<String> segments = Sql.split(namedSql);
+        sb.append(segments.get(0));
+        for (int inx = 1; inx < segments.size(); inx += 2) {
+            String placeholder = segments.get(inx);
+            BindMarker marker = bindMarkersFactory.identifiablePlaceholders() ? markerMap.get(placeholder) : null;
+            if (marker == null) { // '?' 처럼 이름이 없는 marker 는 사용된 위치 마다 따로 bind 해줘야 한다.
+                marker = bindMarkers.next(placeholder);
+                markerMap.put(placeholder, marker);
+                markerList.add(marker);
+                placeholderList.add(placeholder);
+            }
+            sb.append(marker.getPlaceholder()).append(segments.get(inx + 1));
+        }
+
+        return new BatchSql(sb.toString(), markerList.toArray(new BindMarker[0]), placeholderList.toArray(new String[0]));
+    }
+
+    private BatchSql(String sql, BindMarker[] bindMarkers, String[] placeholders) {
+        this.sql = sql;
+        this.bindMarkers = bindMarkers;
+        this.placeholders = placeholders;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * statement 의 현재 binding 에 값들을 bind 한다.
+     * Collection 값은 전개할 수 없으므로 InvalidMapperElementException 을 던진다.
+     *
+     * @param statement bind 할 Statement 객체.
+     * @param valueFunction placeholder 를 받아서 bind 할 값을 반환하는 함수.
+     * @param typeFunction placeholder 를 받아서 그 값의 타입을 반환하는 함수. 값이 null 일 때 사용된다.
+     */
+    public void bind(Statement statement, Function<String, Object> valueFunction, Function<String, Class<?>> typeFunction) {
+        BindTarget bindTarget = new StatementBindTarget(statement);
+        for (int inx = 0; inx < bindMarkers.length; inx++) {
+            Object value = valueFunction.apply(placeholders[inx]);
+            if (value instanceof Collection<?>)
+                throw new InvalidMapperElementException(String.format("A batch query cannot bind a Collection to ':%s'. Use a non-batch query for 'IN (:%s)'.", placeholders[inx], placeholders[inx]));
+            if (value == null)
+                bindMarkers[inx].bindNull(bindTarget, typeFunction.apply(placeholders[inx]));
+            else
+                bindMarkers[inx].bind(bindTarget, TypeUtils.convertForParam(value));
+        }
+    }
+
+    private record StatementBindTarget(Statement statement) implements BindTarget {
+        @Override
+        public void bind(String identifier, Object value) {
+            statement.bind(identifier, value);
+        }
+
+        @Override
+        public void bind(int index, Object value) {
+            statement.bind(index, value);
+        }
+
+        @Override
+        public void bindNull(String identifier, Class<?> type) {
+            statement.bindNull(identifier, type);
+        }
+
+        @Override
+        public void bindNull(int index, Class<?> type) {
+            statement.bindNull(index, type);
+        }
+    }
+}
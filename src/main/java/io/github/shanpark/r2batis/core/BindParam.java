@@ -0,0 +1,88 @@
+package io.github.shanpark.r2batis.core;
+
+import io.github.shanpark.r2batis.exception.InvalidMapperElementException;
+import io.github.shanpark.r2batis.util.ReflectionUtils;
+import io.github.shanpark.r2batis.util.TypeUtils;
+import lombok.Getter;
+
+import java.util.function.Function;
+
+/**
+ * SQL에 사용된 placeholder 하나를 bind 하는 데 필요한 정보.
+ * 값을 어느 argument에서 어떤 getter 들을 거쳐서 읽어야 하는지와 값의 타입을 미리 계산해두고
+ * 호출 시에는 getter 만 차례로 호출해서 값을 읽어 bind 할 수 있도록 한다.
+ */
+@Getter
+public class BindParam {
+
+    private final String name;
+    private final Class<?> type;
+    private final int argIndex;
+    private final Function<Object, Object>[] getters; // argument 객체에서 값을 읽어올 getter 들. argument 자체가 값이면 빈 배열.
+
+    private BindParam(String name, Class<?> type, int argIndex, Function<Object, Object>[] getters) {
+        this.name = name;
+        this.type = type;
+        this.argIndex = argIndex;
+        this.getters = getters;
+    }
+
+    /**
+     * placeholder 문자열을 분석하여 BindParam 객체를 생성한다.
+     * MapperContext.getVarByField0(), getTypeByFullFields()와 같은 규칙으로 argument를 찾는다.
+     * 즉, 먼저 이름이 같은 argument를 찾고 없으면 한 개의 pojo만 arg로 전달된 경우에 한하여 arg[0] 객체의 필드에서 찾는다.
+     *
+     * @param paramInfos Method의 parameter 정보 구조체를 담은 array 객체.
+     * @param placeholder ':' 를 뗀 placeholder 문자열. "obj.field1.field2" 형태일 수 있다.
+     * @return 생성된 BindParam 객체.
+     */
+    @SuppressWarnings("unchecked")
+    public static BindParam of(MethodImpl.ParamInfo[] paramInfos, String placeholder) {
+        String[] fields = placeholder.split("\\.");
+
+        int argIndex = -1;
+        int fromIndex = 1; // argument 자체를 찾은 경우 그 아래 필드부터 따라간다.
+        for (int inx = 0; inx < paramInfos.length; inx++) {
+            if (fields[0].equals(paramInfos[inx].getName())) {
+                argIndex = inx;
+                break;
+            }
+        }
+        if (argIndex < 0) {
+            if (paramInfos.length == 1 && !TypeUtils.supports(paramInfos[0].getType())) { // 한 개의 pojo만 전달된 경우 그 객체의 필드 중에서 찾는다.
+                argIndex = 0;
+                fromIndex = 0;
+            } else {
+                throw new InvalidMapperElementException(String.format("Can't bind ':%s' parameter.", placeholder));
+            }
+        }
+
+        Function<Object, Object>[] getters = new Function[fields.length - fromIndex];
+        Class<?> type = paramInfos[argIndex].getType();
+        for (int inx = fromIndex; inx < fields.length; inx++) {
+            try {
+                getters[inx - fromIndex] = ReflectionUtils.getGetterFunction(type, fields[inx]);
+                type = ReflectionUtils.getGetterMethod(type, fields[inx]).getReturnType();
+            } catch (NoSuchMethodException e) {
+                throw new InvalidMapperElementException(String.format("'%s' field of '%s' not found", fields[inx], placeholder), e);
+            }
+        }
+        return new BindParam(placeholder, type, argIndex, getters);
+    }
+
+    /**
+     * Method 호출 시 전달된 argument 들에서 이 placeholder에 bind 할 값을 읽어온다.
+     *
+     * @param args Method 호출 시 전달된 실제 argument 들을 담은 array 객체.
+     * @return bind 할 값. null일 수 있다.
+     */
+    public Object getValue(Object[] args) {
+        Object value = args[argIndex];
+        for (Function<Object, Object> getter : getters) {
+            if (value == null)
+                throw new InvalidMapperElementException(String.format("Can't bind ':%s' parameter. The intermediate value is null.", name));
+            value = getter.apply(value);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,44 @@
+package io.github.shanpark.r2batis.core;
+
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.util.function.Function;
+
+/**
+ * Flux를 반환하는 {@code <select>} 메소드를 호출할 때 fetchSize, prefetch 속성을 호출 단위로 바꾸기 위한 옵션.
+ * Reactor Context를 통해서 전달되며 0 이하의 값은 mapper XML에 지정된 값을 그대로 사용한다는 뜻이다.
+ *
+ * <pre>{@code
+ * exportMapper.getAllOrders()
+ *         .contextWrite(FetchOptions.with(1000, 256));
+ * }</pre>
+ *
+ * @param fetchSize DB에서 한 번에 가져올 행의 갯수.
+ * @param prefetch 결과 Flux가 upstream에 한 번에 요청할 행의 갯수.
+ */
+public record FetchOptions(int fetchSize, int prefetch) {
+
+    private static final Object CONTEXT_KEY = FetchOptions.class;
+
+    /**
+     * Reactor Context에 FetchOptions를 추가하는 함수를 반환한다. contextWrite()에 전달하면 된다.
+     *
+     * @param fetchSize DB에서 한 번에 가져올 행의 갯수.
+     * @param prefetch 결과 Flux가 upstream에 한 번에 요청할 행의 갯수.
+     * @return Context에 FetchOptions를 추가하는 함수.
+     */
+    public static Function<Context, Context> with(int fetchSize, int prefetch) {
+        FetchOptions fetchOptions = new FetchOptions(fetchSize, prefetch);
+        return context -> context.put(CONTEXT_KEY, fetchOptions);
+    }
+
+    /**
+     * Reactor Context에 저장된 FetchOptions를 찾는다.
+     *
+     * @return 찾은 FetchOptions 객체. 없으면 null.
+     */
+    static FetchOptions from(ContextView contextView) {
+        return contextView.getOrDefault(CONTEXT_KEY, null);
+    }
+}
@@ -2,6 +2,7 @@ package io.github.shanpark.r2batis.core;
 
 import io.github.shanpark.r2batis.configure.R2batisAutoConfiguration;
 import io.github.shanpark.r2batis.exception.InvalidMapperElementException;
+import io.github.shanpark.r2batis.mapper.Cache;
 import io.github.shanpark.r2batis.mapper.Mapper;
 import io.github.shanpark.r2batis.mapper.Query;
 import io.github.shanpark.r2batis.mapper.XmlMapperParser;
@@ -12,26 +13,36 @@ import org.apache.tools.ant.DirectoryScanner;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.beans.factory.NoUniqueBeanDefinitionException;
 import org.springframework.context.ApplicationContext;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.CollectionUtils;
 
 import java.io.*;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.*;
+import java.util.function.Function;
 
 @Slf4j
 public class InterfaceImpl {
+    @Getter
     private final Class<?> clazz;
     private final String connectionFactoryName;
     private final String r2batisPropertiesName;
-    private final Map<String, MethodImpl> methodMap;
+    private final Map<Method, MethodImpl> methodMap; // overload 된 메소드들은 각자의 MethodImpl을 갖는다.
 
+    @Getter
     private ConnectionFactory connectionFactory;
     private DatabaseClient databaseClient;
     @Getter
     private R2batisProperties r2batisProperties;
+    @Getter
+    private MapperMetrics mapperMetrics = MapperMetrics.NOOP;
+    @Getter
+    private ResultCache resultCache; // mapper xml에 <cache>가 없으면 null.
 
     public InterfaceImpl(Class<?> clazz, String connectionFactoryName, String r2batisPropertiesName) {
         this.clazz = clazz;
@@ -40,7 +51,14 @@ public class InterfaceImpl {
         methodMap = new HashMap<>();
     }
 
-    public void initialize(ApplicationContext applicationContext, Map<String, Mapper> mapperXmlCache) {
+    /**
+     * mapper interface에서 사용될 ConnectionFactory, R2batisProperties 등을 찾아서 초기화한다.
+     * mapper xml의 분석은 하지 않으며 initialize()가 성공한 후에 findMapperResources(), initializeMethods() 순으로 호출해야 한다.
+     *
+     * @param applicationContext bean 들을 찾을 ApplicationContext 객체.
+     * @return 초기화에 성공하면 true. ConnectionFactory를 찾지 못하면 false.
+     */
+    public boolean initialize(ApplicationContext applicationContext) {
         // mapper interface에서 사용될 connectionFactory를 찾아서 databaseClient 초기화.
         ConnectionFactory connFactory;
         try {
@@ -52,10 +70,10 @@ public class InterfaceImpl {
             databaseClient = DatabaseClient.builder().connectionFactory(connFactory).build();
         } catch (NoUniqueBeanDefinitionException  e) {
             log.warn("Multiple connection factory for '{}' were found", clazz.getName());
-            return;
+            return false;
         } catch (NoSuchBeanDefinitionException e) {
             log.warn("No connection factory for '{}' was found", clazz.getName());
-            return;
+            return false;
         }
 
         // mapper interface에서 사용될 r2batisProperties 초기화.
@@ -71,102 +89,148 @@ public class InterfaceImpl {
         }
         r2batisProperties = r2batisProps;
 
-        // mapper xml 찾아서 초기화.
-        scanMapperXml(applicationContext, mapperXmlCache);
+        // MeterRegistry가 있으면 메소드 호출의 측정값을 기록한다.
+        mapperMetrics = createMapperMetrics(applicationContext);
+        return true;
+    }
+
+    /**
+     * micrometer-core 가 classpath에 있고 MeterRegistry bean이 있을 때만 측정값을 기록하는 MapperMetrics 객체를 생성한다.
+     * micrometer-core 가 없는 경우에는 MicrometerMapperMetrics 클래스를 로딩하지 않도록 먼저 확인해야 한다.
+     */
+    private static MapperMetrics createMapperMetrics(ApplicationContext applicationContext) {
+        if (ClassUtils.isPresent("io.micrometer.core.instrument.MeterRegistry", InterfaceImpl.class.getClassLoader()))
+            return MicrometerMapperMetrics.of(applicationContext);
+        else
+            return MapperMetrics.NOOP;
     }
 
+    /**
+     * MethodImpl을 추가한다.
+     * 같은 메소드에 대해 parameterTypes가 지정된 Query와 지정되지 않은 Query가 모두 있으면 parameterTypes가 지정된 쪽이 사용된다.
+     */
     public void addMethod(MethodImpl methodImpl) {
-        if (methodMap.put(methodImpl.getName(), methodImpl) != null)
-            throw new InvalidMapperElementException("Two or more query definitions were found. [" + clazz.getName() + "." + methodImpl.getName() + "]");
+        MethodImpl prev = methodMap.get(methodImpl.getMethod());
+        if (prev != null) {
+            boolean prevSpecific = prev.getQuery().getParameterTypes() != null;
+            boolean specific = methodImpl.getQuery().getParameterTypes() != null;
+            if (prevSpecific == specific)
+                throw new InvalidMapperElementException("Two or more query definitions were found. [" + clazz.getName() + "." + methodImpl.getName() + "]");
+            if (prevSpecific)
+                return;
+        }
+        methodMap.put(methodImpl.getMethod(), methodImpl);
     }
 
     /**
+     * 메소드를 호출할 Function 객체를 반환한다. 메소드 마다 한 번만 호출해서 반환된 Function을 보관해두고 사용하도록 한다.
+     * 반환된 Function은 MethodImpl을 바로 호출하므로 호출 시에는 메소드를 찾는 작업이 필요없다.
      *
-     * @param method 호출된 메소드에 대한 정보 객체.
-     * @param args 실제 메소드 호출 시 전달된 argument 들의 배열. 메소드의 parameter가 없는 경우 null이 전달.
-     * @return 호출된 메서드가 반환한 값.
+     * @param method mapper 인터페이스의 Method 객체.
+     * @return argument 배열을 받아서 메소드의 반환값을 반환하는 Function 객체.
+     *         정의된 query가 없는 메소드라면 호출 시 exception을 발생시키는 Function 객체.
      */
-    public Object invoke(Method method, Object[] args) {
-        MethodImpl methodImpl = methodMap.get(method.getName());
-        if (methodImpl != null)
-            return methodImpl.invoke(databaseClient, method, args);
-        else
-            throw new InvalidMapperElementException("There is no valid method definition with name [" + method.getName() + "]. Verify the method name, 'id' or 'databaseId' in the mapper XML");
+    public Function<Object[], Object> resolve(Method method) {
+        MethodImpl methodImpl = methodMap.get(method);
+        if (methodImpl != null) {
+            DatabaseClient client = databaseClient;
+            return args -> methodImpl.invoke(client, args);
+        }
+        return args -> {
+            throw new InvalidMapperElementException("There is no valid method definition with name [" + method.getName() + "]. Verify the method name, 'id', 'parameterTypes' or 'databaseId' in the mapper XML");
+        };
     }
 
     /**
-     * 지정된 경로에서 mapper xml 파일을 찾아서 분석 후 MethodImpl 객체를 생성하여
-     * interfaceMap에 등록된 InterfaceImpl 객체에 추가해준다.
+     * mapperLocations 에 지정된 경로에서 mapper xml 파일들을 찾는다. 파일을 읽거나 분석하지는 않는다.
+     * 반환된 Map의 key는 같은 파일을 두 번 분석하지 않도록 분석된 Mapper를 캐슁할 때 key로 사용된다.
+     *
+     * @return key와 mapper xml 리소스를 담은 Map 객체. 찾은 순서를 유지한다.
      */
-    private void scanMapperXml(ApplicationContext applicationContext, Map<String, Mapper> mapperXmlCache) {
+    public Map<String, Resource> findMapperResources() {
         String mapperLocations = r2batisProperties.getMapperLocations();
         if (mapperLocations == null)
             mapperLocations = "classpath:mapper/**/*.xml"; // default location
 
+        Map<String, Resource> mapperResources = new LinkedHashMap<>();
         String[] mapperPathPatterns = mapperLocations.split("\\s*,\\s*");
         for (String mapperPathPattern : mapperPathPatterns) {
             if (mapperPathPattern.startsWith("classpath:"))
-                scanMapperXmlInResources(applicationContext, mapperPathPattern, mapperXmlCache);
+                findMapperResourcesInClasspath(mapperPathPattern, mapperResources);
             else
-                scanMapperXmlInDir(applicationContext, mapperPathPattern, mapperXmlCache);
+                findMapperResourcesInDir(mapperPathPattern, mapperResources);
         }
+        return mapperResources;
     }
 
-    private void scanMapperXmlInResources(ApplicationContext applicationContext, String mapperPath, Map<String, Mapper> mapperXmlCache) {
+    private void findMapperResourcesInClasspath(String mapperPath, Map<String, Resource> mapperResources) {
         try {
             PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
             Resource[] resources = resolver.getResources(mapperPath);
-            for (Resource resource : resources) {
-                Mapper mapper = mapperXmlCache.get(resource.getURI().toString());
-                if (mapper != null) {
-                    initializeMethodsFromMapperXml(applicationContext, mapper);
-                } else {
-                    mapper = initializeMethodsFromMapperXml(applicationContext, resource.getInputStream());
-                    mapperXmlCache.put(resource.getURI().toString(), mapper); // 2번 parsing하지 않도록 cache에 저장.
-                }
-            }
+            for (Resource resource : resources)
+                mapperResources.put(resource.getURI().toString(), resource);
         } catch (FileNotFoundException ignored) {
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
-    private void scanMapperXmlInDir(ApplicationContext applicationContext, String mapperPathPattern, Map<String, Mapper> mapperXmlCache) {
+    private void findMapperResourcesInDir(String mapperPathPattern, Map<String, Resource> mapperResources) {
         DirectoryScanner scanner = new DirectoryScanner();
         scanner.setIncludes(new String[]{ mapperPathPattern });
         if (!mapperPathPattern.startsWith(File.separator))
             scanner.setBasedir("."); // current dir.
         scanner.scan();
 
-        try {
-            String[] files = scanner.getIncludedFiles();
-            for (String file : files) {
-                Mapper mapper = mapperXmlCache.get(file);
-                if (mapper != null) {
-                    initializeMethodsFromMapperXml(applicationContext, mapper);
-                } else {
-                    mapper = initializeMethodsFromMapperXml(applicationContext, new FileInputStream(file));
-                    mapperXmlCache.put(file, mapper); // 2번 parsing하지 않도록 cache에 저장.
-                }
+        String[] files = scanner.getIncludedFiles();
+        for (String file : files)
+            mapperResources.put(file, new FileSystemResource(file));
+    }
+
+    /**
+     * 분석된 mapper xml 들로부터 MethodImpl 객체를 생성하여 추가한다.
+     * mapperXmlCache 에 없는 리소스는 여기서 분석해서 mapperXmlCache 에 추가한다.
+     *
+     * @param applicationContext bean 들을 찾을 ApplicationContext 객체.
+     * @param mapperResources findMapperResources()가 반환한 Map 객체.
+     * @param mapperXmlCache 이미 분석된 Mapper 들을 담은 Map 객체. key는 mapperResources의 key와 같다.
+     */
+    public void initializeMethods(ApplicationContext applicationContext, Map<String, Resource> mapperResources, Map<String, Mapper> mapperXmlCache) {
+        List<Mapper> mappers = new ArrayList<>();
+        for (Map.Entry<String, Resource> entry : mapperResources.entrySet()) {
+            Mapper mapper = mapperXmlCache.get(entry.getKey());
+            if (mapper == null) {
+                mapper = XmlMapperParser.parse(entry.getValue());
+                mapperXmlCache.put(entry.getKey(), mapper); // 2번 parsing하지 않도록 cache에 저장.
             }
-        } catch (FileNotFoundException e) {
-            throw new RuntimeException(e);
+            if (mapper.getInterfaceName().equals(clazz.getName()))
+                mappers.add(mapper);
         }
-    }
 
-    private Mapper initializeMethodsFromMapperXml(ApplicationContext applicationContext, InputStream inputStream) {
-        Mapper mapper = XmlMapperParser.parse(inputStream);
-        if (mapper == null)
-            return new Mapper(); // empty mapper를 반환한다. 같은 리소스를 다시 parse하지 않도록 하기 위함이다.
+        resultCache = createResultCache(mappers); // 모든 MethodImpl 들이 같은 캐쉬를 보도록 MethodImpl 들을 생성하기 전에 만들어야 한다.
+        for (Mapper mapper : mappers)
+            initializeMethodsFromMapperXml(applicationContext, mapper);
+    }
 
-        initializeMethodsFromMapperXml(applicationContext, mapper);
-        return mapper;
+    /**
+     * namespace의 mapper xml 들 중에서 {@code <cache>}를 찾아서 ResultCache를 생성한다.
+     * namespace 마다 하나의 {@code <cache>}만 정의할 수 있다.
+     *
+     * @return 생성된 ResultCache 객체. {@code <cache>}가 없으면 null.
+     */
+    private ResultCache createResultCache(List<Mapper> mappers) {
+        Cache cache = null;
+        for (Mapper mapper : mappers) {
+            if (mapper.getCache() == null)
+                continue;
+            if (cache != null)
+                throw new InvalidMapperElementException("The <cache> element is defined more than once for the namespace. [" + clazz.getName() + "]");
+            cache = mapper.getCache();
+        }
+        return cache != null ? new ResultCache(cache) : null;
     }
 
     private void initializeMethodsFromMapperXml(ApplicationContext applicationContext, Mapper mapper) {
-        if (!mapper.getInterfaceName().equals(clazz.getName()))
-            return;
-
         String databaseId;
         try {
             DatabaseIdProvider databaseIdProvider = applicationContext.getBean(DatabaseIdProvider.class);
@@ -175,13 +239,21 @@ public class InterfaceImpl {
             databaseId = null;
         }
 
-        Set<Method> methods = new HashSet<>(Arrays.asList(clazz.getMethods()));
+        // default 메소드와 static 메소드는 인터페이스의 구현을 그대로 사용한다.
+        List<Method> methods = Arrays.stream(clazz.getMethods())
+                .filter(method -> Modifier.isAbstract(method.getModifiers()))
+                .toList();
         if (!methods.isEmpty() && !CollectionUtils.isEmpty(mapper.getQueryList())) { // null 체크도 해줌.
             for (Query query : mapper.getQueryList()) {
                 if (databaseId == null || query.getDatabaseId().isBlank() || Objects.equals(databaseId, query.getDatabaseId())) {
-                    if (methods.stream().anyMatch(method -> method.getName().equals(query.getId())))
-                        addMethod(new MethodImpl(this, query.getId(), query));
-                    else
+                    boolean found = false;
+                    for (Method method : methods) {
+                        if (method.getName().equals(query.getId()) && query.matchesParameterTypes(method.getParameterTypes())) {
+                            addMethod(new MethodImpl(this, method, query)); // overload 된 메소드 마다 따로 생성된다.
+                            found = true;
+                        }
+                    }
+                    if (!found)
                         log.warn("The method mapping for '{}.{}' could not be found.", mapper.getInterfaceName(), query.getId());
                 }
             }
@@ -0,0 +1,59 @@
+package io.github.shanpark.r2batis.core;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * mapper interface의 proxy가 사용하는 InvocationHandler.
+ * proxy 클래스는 메소드 마다 같은 Method 객체를 전달하므로 Method 객체의 identity로 InterfaceImpl.resolve()가 반환한
+ * Function을 찾는다. 따라서 메소드 이름의 hash 계산이나 Method.equals() 비교 없이 바로 MethodImpl을 호출한다.
+ * Object의 메소드와 default 메소드는 mapper xml과 상관없이 여기서 처리된다.
+ */
+public class MapperInvocationHandler implements InvocationHandler {
+
+    private final InterfaceImpl interfaceImpl;
+
+    // 처음 호출될 때 추가되며 추가될 때만 복사된다. (copy on write)
+    private volatile Map<Method, Function<Object[], Object>> dispatchMap = new IdentityHashMap<>();
+
+    public MapperInvocationHandler(InterfaceImpl interfaceImpl) {
+        this.interfaceImpl = interfaceImpl;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        Function<Object[], Object> target = dispatchMap.get(method);
+        if (target != null)
+            return target.apply(args);
+
+        if (method.getDeclaringClass() == Object.class)
+            return invokeObjectMethod(proxy, method, args);
+        if (method.isDefault())
+            return InvocationHandler.invokeDefault(proxy, method, args);
+
+        return register(method).apply(args);
+    }
+
+    private synchronized Function<Object[], Object> register(Method method) {
+        Function<Object[], Object> target = dispatchMap.get(method);
+        if (target == null) {
+            target = interfaceImpl.resolve(method);
+            Map<Method, Function<Object[], Object>> newMap = new IdentityHashMap<>(dispatchMap);
+            newMap.put(method, target);
+            dispatchMap = newMap;
+        }
+        return target;
+    }
+
+    private Object invokeObjectMethod(Object proxy, Method method, Object[] args) {
+        return switch (method.getName()) {
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "toString" -> "R2batis mapper proxy for " + interfaceImpl.getClazz().getName();
+            default -> throw new UnsupportedOperationException(method.getName());
+        };
+    }
+}
@@ -0,0 +1,96 @@
+package io.github.shanpark.r2batis.core;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Mapper 메소드 호출에 대한 측정값을 기록하는 객체를 생성한다.
+ * 측정값을 기록할 곳이 없으면 NOOP 객체가 사용되며 이 경우 MethodImpl은 시간 측정 자체를 하지 않는다.
+ */
+public interface MapperMetrics {
+
+    MapperMetrics NOOP = (mapperName, methodId, databaseId) -> MethodMetrics.NOOP;
+
+    /**
+     * Mapper 메소드 하나에 대한 MethodMetrics 객체를 생성한다. MethodImpl 생성 시 한 번만 호출된다.
+     *
+     * @param mapperName Mapper 인터페이스의 이름.
+     * @param methodId 메소드의 id. (query의 id)
+     * @param databaseId query에 지정된 databaseId. 지정되지 않았으면 빈 문자열.
+     * @return 생성된 MethodMetrics 객체.
+     */
+    MethodMetrics forMethod(String mapperName, String methodId, String databaseId);
+
+    /**
+     * Mapper 메소드 하나의 호출 측정값을 기록한다.
+     */
+    interface MethodMetrics {
+
+        MethodMetrics NOOP = new MethodMetrics() {
+            @Override
+            public boolean isEnabled() {
+                return false;
+            }
+
+            @Override
+            public void recordSqlGeneration(long nanos) {
+            }
+
+            @Override
+            public void recordBinding(long nanos) {
+            }
+
+            @Override
+            public void recordError(Throwable error) {
+            }
+
+            @Override
+            public <T> Mono<T> instrument(Mono<T> mono, boolean rowsUpdated) {
+                return mono;
+            }
+
+            @Override
+            public <T> Flux<T> instrument(Flux<T> flux, boolean rowsUpdated) {
+                return flux;
+            }
+        };
+
+        /**
+         * 측정값을 실제로 기록하는지 여부. false 이면 호출하는 쪽에서 시간 측정을 하지 않아도 된다.
+         */
+        boolean isEnabled();
+
+        /**
+         * SQL 문 생성에 걸린 시간을 기록한다.
+         */
+        void recordSqlGeneration(long nanos);
+
+        /**
+         * 생성된 SQL 문에 값을 bind 하는 데 걸린 시간을 기록한다.
+         */
+        void recordBinding(long nanos);
+
+        /**
+         * 실행 결과 발생한 에러를 기록한다.
+         */
+        void recordError(Throwable error);
+
+        /**
+         * 실행 결과를 발행하는 Mono에 첫 행까지 걸린 시간, 전체 실행 시간, 행의 갯수, 에러를 기록하도록 한다.
+         *
+         * @param mono 실행 결과를 발행하는 Mono 객체.
+         * @param rowsUpdated true 이면 발행되는 값을 영향 받은 행의 갯수로 보고 그 값을 더한다. false 이면 발행된 행의 갯수를 센다.
+         * @return 측정값을 기록하는 Mono 객체.
+         */
+        <T> Mono<T> instrument(Mono<T> mono, boolean rowsUpdated);
+
+        /**
+         * 실행 결과를 발행하는 Flux에 첫 행까지 걸린 시간, 전체 실행 시간, 행의 갯수, 에러를 기록하도록 한다.
+         *
+         * @param flux 실행 결과를 발행하는 Flux 객체.
+         * @param rowsUpdated true 이면 발행되는 값을 영향 받은 행의 갯수로 보고 그 값을 더한다. false 이면 발행된 행의 갯수를 센다.
+         * @return 측정값을 기록하는 Flux 객체.
+         */
+        <T> Flux<T> instrument(Flux<T> flux, boolean rowsUpdated);
+    }
+}
@@ -2,7 +2,7 @@ package io.github.shanpark.r2batis.core;
 
 import io.github.shanpark.r2batis.exception.InvalidMapperElementException;
 import io.github.shanpark.r2batis.mapper.*;
-import io.github.shanpark.r2batis.util.ReflectionUtils;
+import io.github.shanpark.r2batis.util.MappingPlan;
 import io.github.shanpark.r2batis.util.TypeUtils;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -10,25 +10,53 @@ import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import ognl.Ognl;
 import ognl.OgnlException;
+import io.r2dbc.spi.Batch;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
 import org.reactivestreams.Publisher;
+import org.springframework.r2dbc.connection.SingleConnectionFactory;
 import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.lang.reflect.Array;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 @Data
 @Slf4j
 public class MethodImpl {
 
     private final InterfaceImpl host;
+    private final Method method; // 이 객체가 구현하는 mapper 인터페이스의 메소드. overload 된 메소드들은 각자 MethodImpl을 갖는다.
     private final String name;
+    private final ParamInfo[] paramInfos; // method의 parameter 정보. 호출 마다 Method.getParameters()를 호출하지 않도록 미리 만들어둔다.
+    private final boolean fluxReturn; // method의 반환 타입이 Flux이면 true.
     private final Query query;
+    private final MapperMetrics.MethodMetrics metrics;
+    private final ResultCache resultCache; // namespace에 <cache>가 없으면 null.
+    private final Map<QueryKey, Mono<Object>> inFlightQueries = new ConcurrentHashMap<>(); // coalesce="true"인 select의 실행 중인 것들.
+    private final boolean rowsUpdatedResult; // 실행 결과가 영향 받은 행의 갯수이면 true. (측정값 기록에 사용)
+    private final boolean sharesResults; // 결과 캐쉬나 coalesce 처럼 다른 호출들과 결과를 공유하는 메소드이면 true. 이 때만 트랜잭션 여부를 확인한다.
 
-    private volatile ParamInfo[] innerParams; // 캐슁 대상.
+    private final Map<Query, BindParam[]> staticBindParams = new ConcurrentHashMap<>(); // 캐슁 대상. 본문 query와 <selectKey> 별로 따로 저장된다.
+    private final Map<Query, Map<String, BindParam>> dynamicBindParams = new ConcurrentHashMap<>(); // 캐슁 대상.
+    private final Map<Query, Map<String, BindParam>> batchBindParams = new ConcurrentHashMap<>(); // 캐슁 대상.
+    private volatile BatchSql batchSql; // 캐슁 대상.
 
     @Data
     @NoArgsConstructor
@@ -38,21 +66,122 @@ public class MethodImpl {
         Class<?> type;
     }
 
-    public MethodImpl(InterfaceImpl host, String name, Query query) {
+    public MethodImpl(InterfaceImpl host, Method method, Query query) {
         this.host = host;
-        this.name = name;
+        this.method = method;
+        this.name = method.getName();
         this.query = query;
+        this.fluxReturn = Flux.class.isAssignableFrom(method.getReturnType());
+
+        Parameter[] parameters = method.getParameters();
+        this.paramInfos = new ParamInfo[parameters.length];
+        for (int inx = 0; inx < parameters.length; inx++)
+            paramInfos[inx] = new ParamInfo(parameters[inx].getName(), parameters[inx].getType());
+
+        this.resultCache = host.getResultCache();
+        this.sharesResults = resultCache != null || (query instanceof Select select && select.isCoalesce());
+        if (fluxReturn && (query instanceof Select select) && select.isCoalesce()) // Flux 결과를 공유하려면 모든 행을 메모리에 붙잡아둬야 한다.
+            throw new InvalidMapperElementException("The 'coalesce' attribute can only be used for the methods returning Mono. [" + name + "]");
+        this.metrics = host.getMapperMetrics().forMethod(host.getClazz().getName(), name, query.getDatabaseId());
+        this.rowsUpdatedResult = !((query instanceof Select) || (query instanceof Pipeline) ||
+                ((query instanceof Insert insert) && insert.isGenerateKeys()) ||
+                ((query instanceof Update update) && update.isGenerateKeys()));
     }
 
     /**
      * Mapper 인터페이스의 메소드를 호출한다. 이 메소드는 XML 맵퍼에 설정된 SQL문을 실행한다.
+     * SQL의 생성과 실행은 반환된 Mono, Flux를 subscribe 할 때 이루어진다.
+     * subscribe 하는 쪽의 Reactor Context에 R2batisSession이 있으면 session이 잡고 있는 connection에서 실행된다.
      *
-     * @param databaseClient SQL을 실행할 DatabaseClient 객체.
-     * @param method Mapper 인터페이스의 Method 객체.
+     * @param databaseClient SQL을 실행할 DatabaseClient 객체. session 밖에서 호출될 때 사용된다.
      * @param args Mapper 인터페이스의 메소드를 호출할 때 전달된 argument 들.
      * @return Mapper 인터페이스가 반환해야 하는 값.
      */
-    public Object invoke(DatabaseClient databaseClient, Method method, Object[] args) {
+    public Object invoke(DatabaseClient databaseClient, Object[] args) {
+        if (fluxReturn) {
+            Flux<Object> flux = Flux.deferContextual(contextView -> {
+                R2batisSession session = R2batisSession.from(contextView);
+                if (session == null)
+                    return Flux.<Object>from(invokeQuery(databaseClient, args, false));
+                return session.getDatabaseClient(host.getConnectionFactory())
+                        .flatMapMany(sessionClient -> Flux.<Object>from(invokeQuery(sessionClient, args, true)));
+            });
+            return metrics.isEnabled() ? metrics.instrument(flux, rowsUpdatedResult) : flux; // 측정값을 기록하지 않으면 아무 것도 감싸지 않는다.
+        } else {
+            Mono<Object> mono = Mono.deferContextual(contextView -> {
+                R2batisSession session = R2batisSession.from(contextView);
+                if (session == null)
+                    return Mono.<Object>from(invokeQuery(databaseClient, args, false));
+                return session.getDatabaseClient(host.getConnectionFactory())
+                        .flatMap(sessionClient -> Mono.<Object>from(invokeQuery(sessionClient, args, true)));
+            });
+            return metrics.isEnabled() ? metrics.instrument(mono, rowsUpdatedResult) : mono;
+        }
+    }
+
+    /**
+     * @param inSession R2batisSession 안에서 호출되었으면 true.
+     */
+    private Publisher<?> invokeQuery(DatabaseClient databaseClient, Object[] args, boolean inSession) {
+        if (!sharesResults)
+            return execQuery(databaseClient, args, false);
+
+        // 트랜잭션 안의 호출은 commit 되지 않은 값을 볼 수 있으므로 다른 호출들과 결과를 공유하지 않아야 한다.
+        Mono<Optional<TransactionSynchronizationManager>> transaction = activeTransaction()
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty());
+        if (fluxReturn)
+            return transaction.flatMapMany(tx -> Flux.from(invokeSharingQuery(databaseClient, args, inSession, tx.orElse(null))));
+        else
+            return transaction.flatMap(tx -> Mono.from(invokeSharingQuery(databaseClient, args, inSession, tx.orElse(null))));
+    }
+
+    /**
+     * 결과 캐쉬나 coalesce를 사용하는 메소드를 실행한다.
+     * session이나 트랜잭션 안에서 호출되었으면 캐쉬된 결과를 사용하지도 저장하지도 않으며 다른 호출의 실행에 합류하지도 않는다.
+     *
+     * @param transaction 호출한 쪽의 트랜잭션. 트랜잭션 밖이면 null.
+     */
+    private Publisher<?> invokeSharingQuery(DatabaseClient databaseClient, Object[] args, boolean inSession, TransactionSynchronizationManager transaction) {
+        Publisher<?> publisher = execQuery(databaseClient, args, inSession || transaction != null);
+        if (resultCache == null || !query.isFlushCache())
+            return publisher;
+
+        // 실행 후 commit 전에 다른 호출이 이전 값을 다시 캐슁할 수 있으므로 트랜잭션이 끝난 후에도 한 번 더 비운다.
+        if (transaction != null && transaction.isSynchronizationActive()) {
+            transaction.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public Mono<Void> afterCompletion(int status) {
+                    return Mono.fromRunnable(resultCache::clear);
+                }
+            });
+        }
+
+        // 실행이 끝나면(에러, 취소 포함) namespace의 결과 캐쉬를 비운다.
+        if (publisher instanceof Mono<?> mono)
+            return mono.doFinally(signal -> resultCache.clear());
+        else
+            return Flux.from(publisher).doFinally(signal -> resultCache.clear());
+    }
+
+    /**
+     * subscribe 하는 쪽이 실제 트랜잭션 안이면 그 트랜잭션의 TransactionSynchronizationManager를 발행한다. 아니면 빈 Mono.
+     */
+    private static Mono<TransactionSynchronizationManager> activeTransaction() {
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .filter(TransactionSynchronizationManager::isActualTransactionActive)
+                .onErrorResume(NoTransactionException.class, e -> Mono.empty());
+    }
+
+    /**
+     * @param isolated true 이면 결과 캐쉬, coalesce 처럼 다른 호출들과 결과를 공유하는 기능을 사용하지 않는다.
+     */
+    private Publisher<?> execQuery(DatabaseClient databaseClient, Object[] args, boolean isolated) {
+        if (query.isBatch())
+            return execBatchSql(databaseClient, args);
+        if (query instanceof Pipeline pipeline)
+            return execPipeline(databaseClient, pipeline, args);
+
         List<SelectKey> selectKeys;
         if ((query instanceof Insert insert) && !insert.getSelectKeys().isEmpty())
             selectKeys = insert.getSelectKeys();
@@ -65,23 +194,23 @@ public class MethodImpl {
             Mono<?> beforeMono = Mono.empty();
             for (SelectKey selectKey : selectKeys) {
                 if (selectKey.getOrder().equalsIgnoreCase("before"))
-                    beforeMono = beforeMono.then(Mono.defer(() -> execSelectKeySql(databaseClient, selectKey, method, args)));
+                    beforeMono = beforeMono.then(Mono.defer(() -> execSelectKeySql(databaseClient, selectKey, args)));
             }
             return beforeMono.then(Mono.defer(() -> { // main sql의 생성(execBodySql()의 호출)은 before mono의 생성뿐만 아니라 실행이 완료될 때 까지 지연되어야 한다. 그래서 defer() 사용.
-                        return ((Mono<?>) execBodySql(databaseClient, method, args))
+                        return ((Mono<?>) execBodySql(databaseClient, args, isolated))
                                 .flatMap(result ->
                                         Mono.defer(() -> { // after mono의 생성도 execBodySql()이 반환한 모노가 실행이 완료될 때 까지 지연되어야 한다. 여기서도 defer()를 사용해야 맞다.
                                             Mono<?> afterMono = Mono.empty();
                                             for (SelectKey selectKey : selectKeys) {
                                                 if (selectKey.getOrder().equalsIgnoreCase("after"))
-                                                    afterMono = afterMono.then(Mono.defer(() -> execSelectKeySql(databaseClient, selectKey, method, args)));
+                                                    afterMono = afterMono.then(Mono.defer(() -> execSelectKeySql(databaseClient, selectKey, args)));
                                             }
                                             return afterMono.then(Mono.just(result));
                                         })
                                 );
                     }));
         } else {
-            return execBodySql(databaseClient, method, args);
+            return execBodySql(databaseClient, args, isolated);
         }
     }
 
@@ -93,27 +222,11 @@ public class MethodImpl {
      *
      * @param databaseClient SQL을 실행할 DatabaseClient 객체.
      * @param selectKey {@code <selectKey>} Query 객체.
-     * @param method Mapper 인터페이스의 Method 객체.
      * @param args Mapper 인터페이스의 메소드를 호출할 때 전달된 argument 들.
      * @return selectKey 구문이 반환하는 값을 발행하는 Mono 객체.
      */
-    private Mono<?> execSelectKeySql(DatabaseClient databaseClient, SelectKey selectKey, Method method, Object[] args) {
-        MapperContext mapperContext = MapperContext.of(getParamInfos(method.getParameters()), args);
-
-        String sql = selectKey.generateSql(mapperContext);
-        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql);
-        try {
-            Map<String, Object> paramMap = mapperContext.getParamMap();
-            for (String placeholder : mapperContext.getBindSet()) {
-                Object param = Ognl.getValue(placeholder, paramMap);
-                if (param == null)
-                    spec = spec.bindNull(placeholder, mapperContext.getPlaceholderType(placeholder));
-                else
-                    spec = spec.bind(placeholder, TypeUtils.convertForParam(param));
-            }
-        } catch (OgnlException e) {
-            throw new InvalidMapperElementException(e);
-        }
+    private Mono<?> execSelectKeySql(DatabaseClient databaseClient, SelectKey selectKey, Object[] args) {
+        DatabaseClient.GenericExecuteSpec spec = bindSql(databaseClient, selectKey, args, null);
 
         return spec.fetch()
                 .one() // 여기서 반드시 1개의 값이 나와야 한다. 그렇지 않으면 error case.
@@ -129,12 +242,12 @@ public class MethodImpl {
                     }
                     selectedValue = TypeUtils.convert(selectedValue, selectKey.getResultClass());
 
-                    try {
+                    try (MapperContext mapperContext = MapperContext.of(paramInfos, args)) {
                         String[] fields = selectKey.getKeyProperty().split("\\s*\\.\\s*");
                         Class<?> targetType = mapperContext.getTypeByFullFields(fields);
                         if (fields.length == 1) {
                             // keyProperty는 반드시 method arg로 넘겨진 pojo 객체의 한 필드이어야 한다. 따라서 field 가 1개라면 method arg도 1개이어야 그 arg의 필드로 판단해서 값을 설정할 수 있다.
-                            if (mapperContext.getMethodArgs().size() == 1)
+                            if (mapperContext.getMethodArgCount() == 1)
                                 Ognl.setValue(selectKey.getKeyProperty().trim(), args[0], TypeUtils.convert(selectedValue, targetType));
                             else
                                 throw new InvalidMapperElementException("The 'keyProperty' expression cannot be resolved.");
@@ -152,23 +265,15 @@ public class MethodImpl {
                 });
     }
 
-    public Publisher<?> execBodySql(DatabaseClient databaseClient, Method method, Object[] args) {
-        MapperContext mapperContext = MapperContext.of(getParamInfos(method.getParameters()), args);
+    public Publisher<?> execBodySql(DatabaseClient databaseClient, Object[] args) {
+        return execBodySql(databaseClient, args, false);
+    }
 
-        String sql = query.generateSql(mapperContext);
-        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql);
-        try {
-            Map<String, Object> paramMap = mapperContext.getParamMap();
-            for (String placeholder : mapperContext.getBindSet()) {
-                Object param = Ognl.getValue(placeholder, paramMap);
-                if (param == null)
-                    spec = spec.bindNull(placeholder, mapperContext.getPlaceholderType(placeholder));
-                else
-                    spec = spec.bind(placeholder, TypeUtils.convertForParam(param));
-            }
-        } catch (OgnlException e) {
-            throw new InvalidMapperElementException(e);
-        }
+    private Publisher<?> execBodySql(DatabaseClient databaseClient, Object[] args, boolean isolated) {
+        boolean useCache = !isolated && resultCache != null && query.isUseCache();
+        boolean coalesce = !isolated && (query instanceof Select select) && select.isCoalesce(); // 공유된 실행은 처음 호출한 쪽의 connection과 context로 실행된다.
+        QueryKey queryKey = (useCache || coalesce) ? new QueryKey(query) : null;
+        DatabaseClient.GenericExecuteSpec spec = bindSql(databaseClient, query, args, queryKey);
 
         // useGeneratedKeys 속성은 multi insert, update를 하는 경우 반환값을 받기 위함이다.
         // 하지만 현재는 제대로 지원되지 않고 있다.
@@ -178,55 +283,506 @@ public class MethodImpl {
         if (query instanceof Insert insert) { // insert
             if (insert.isGenerateKeys()) {
                 spec = spec.filter(s -> s.returnGeneratedValues(insert.getKeyColumn())); // 결과로 생성된 값이 나오도록 하는 filter를 적용한다.
-                return fetchByReturnType(spec, method, query); // useGeneratedKeys가 지정되면 생성된 키값이 반환된다. updatedRows() 값은 포기해야 한다. R2DBC는 둘 중 하나만 선택가능하다.
+                return fetchByReturnType(spec, query); // useGeneratedKeys가 지정되면 생성된 키값이 반환된다. updatedRows() 값은 포기해야 한다. R2DBC는 둘 중 하나만 선택가능하다.
             } else {
                 return fetchRowsUpdated(spec, query);
             }
         } else if (query instanceof Update update) { // update
             if (update.isGenerateKeys()) {
                 spec = spec.filter(s -> s.returnGeneratedValues(update.getKeyColumn())); // 결과로 생성된 값이 나오도록 하는 filter를 적용한다.
-                return fetchByReturnType(spec, method, query); // useGeneratedKeys가 지정되면 생성된 키값이 반환된다. updatedRows() 값은 포기해야 한다. R2DBC는 둘 중 하나만 선택가능하다.
+                return fetchByReturnType(spec, query); // useGeneratedKeys가 지정되면 생성된 키값이 반환된다. updatedRows() 값은 포기해야 한다. R2DBC는 둘 중 하나만 선택가능하다.
             } else {
                 return fetchRowsUpdated(spec, query);
             }
         } else if (query instanceof Select) { // select
-            return fetchByReturnType(spec, method, query);
+            if (useCache)
+                return fetchWithCache(spec, queryKey, coalesce);
+            else if (coalesce)
+                return fetchCoalesced(spec, queryKey);
+            return fetchByReturnType(spec, query);
         } else { // delete
             return fetchRowsUpdated(spec, query);
         }
     }
 
-    private ParamInfo[] getParamInfos(Parameter[] parameters) {
-        if (innerParams == null) { // 한 번 생성하면 변동없으므로 캐슁한다.
+    /**
+     * batch="true"로 지정된 query를 실행한다.
+     * 메소드의 유일한 argument인 Collection 또는 배열의 각 요소를 한 행의 argument로 보고
+     * 한 번 생성된 SQL에 요소 마다 값을 bind 해서 (Statement.add() 사용) 한 번에 실행한다.
+     * 메소드의 반환 타입이 Flux이면 각 행의 영향 받은 행의 갯수를 발행하고 Mono이면 그 합계를 발행한다.
+     *
+     * @param databaseClient SQL을 실행할 DatabaseClient 객체.
+     * @param args Mapper 인터페이스의 메소드를 호출할 때 전달된 argument 들.
+     * @return 영향 받은 행의 갯수를 발행하는 Publisher 객체.
+     */
+    private Publisher<?> execBatchSql(DatabaseClient databaseClient, Object[] args) {
+        if (args == null || args.length != 1)
+            throw new InvalidMapperElementException("The method for the batch query should have only one Collection or array parameter. [" + name + "]");
+
+        List<Object> rows = new ArrayList<>();
+        if (args[0] instanceof Collection<?> collection) {
+            rows.addAll(collection);
+        } else if (args[0] != null && args[0].getClass().isArray()) {
+            for (int inx = 0; inx < Array.getLength(args[0]); inx++)
+                rows.add(Array.get(args[0], inx));
+        } else {
+            throw new InvalidMapperElementException("The argument of the batch query should be a Collection or an array. [" + name + "]");
+        }
+
+        Flux<Long> counts;
+        if (rows.isEmpty()) {
+            counts = Flux.empty();
+        } else {
+            BatchSql batchSql = getBatchSql();
+            Map<String, BindParam> bindParams = getBatchBindParams();
+            counts = databaseClient.inConnectionMany(connection -> {
+                Statement statement = connection.createStatement(batchSql.getSql());
+                Object[] rowArgs = new Object[1];
+                for (int inx = 0; inx < rows.size(); inx++) {
+                    if (inx > 0)
+                        statement.add(); // 이전 binding을 저장하고 새 binding을 시작한다.
+                    rowArgs[0] = rows.get(inx);
+                    batchSql.bind(statement,
+                            placeholder -> bindParams.get(placeholder).getValue(rowArgs),
+                            placeholder -> bindParams.get(placeholder).getType());
+                }
+                return Flux.from(statement.execute())
+                        .concatMap(Result::getRowsUpdated);
+            });
+        }
+
+        Class<?> resultClass = query.getResultClass();
+        if (fluxReturn) {
+            if ((resultClass != null) && !resultClass.equals(Long.class))
+                return counts.map(count -> TypeUtils.convert(count, resultClass));
+            return counts;
+        } else {
+            Mono<Long> sum = counts.reduce(0L, Long::sum);
+            if ((resultClass != null) && !resultClass.equals(Long.class))
+                return sum.map(count -> TypeUtils.convert(count, resultClass));
+            return sum;
+        }
+    }
+
+    /**
+     * {@code <pipeline>}의 SQL 문 하나를 생성한 결과. bind 할 값들을 함께 갖는다.
+     * values 에는 null 값도 들어있으므로 values가 비어있으면 bind 할 placeholder가 없는 SQL 문이다.
+     */
+    private record PipelineSql(Query statement, String sql, Map<String, Object> values, Map<String, Class<?>> types) {}
+
+    /**
+     * {@code <pipeline>}의 SQL 문들을 하나의 connection에서 실행하고 결과들을 하나의 객체로 묶어서 발행한다.
+     * 모든 SQL 문에 bind 할 값이 없으면 R2DBC Batch로 한 번에 전송하므로 DB와 한 번만 주고 받는다.
+     * R2DBC Batch는 bind를 지원하지 않으므로 bind 할 값이 있으면 같은 connection에서 SQL 문들을 차례로 실행한다.
+     * 이 때는 SQL 문 마다 DB와 한 번씩 주고 받으므로 connection을 한 번만 얻는 것 외에는 따로 실행하는 것과 차이가 없다.
+     * connection을 감싼 DatabaseClient로 실행하므로 일반 query와 같이 Collection 값이 {@code IN (:ids)} 처럼 전개된다.
+     *
+     * @param databaseClient SQL을 실행할 DatabaseClient 객체.
+     * @param pipeline 실행할 {@code <pipeline>} 객체.
+     * @param args Mapper 인터페이스의 메소드를 호출할 때 전달된 argument 들.
+     * @return 실행 결과들을 묶은 객체를 발행하는 Mono 객체.
+     */
+    private Mono<Object> execPipeline(DatabaseClient databaseClient, Pipeline pipeline, Object[] args) {
+        return Mono.defer(() -> {
+            List<PipelineSql> sqls = new ArrayList<>(pipeline.getStatements().size());
+            boolean unbound = true;
+            for (Query statement : pipeline.getStatements()) {
+                PipelineSql sql = generatePipelineSql(statement, args);
+                unbound &= sql.values().isEmpty();
+                sqls.add(sql);
+            }
+
+            boolean useBatch = unbound;
+            return databaseClient.inConnection(connection -> {
+                Flux<Object> results;
+                if (useBatch) {
+                    Batch batch = connection.createBatch();
+                    for (PipelineSql sql : sqls)
+                        batch.add(sql.sql());
+                    results = Flux.from(batch.execute())
+                            .index() // Batch는 SQL 문 순서대로 Result를 발행한다.
+                            .concatMap(indexed -> {
+                                int inx = indexed.getT1().intValue();
+                                if (inx >= sqls.size())
+                                    return Mono.error(new InvalidMapperElementException("The <pipeline> returned more results than its statements. [" + name + "]"));
+                                return readPipelineResult(indexed.getT2(), sqls.get(inx).statement());
+                            });
+                } else {
+                    // close()가 호출되어도 실제로 닫지 않는 ConnectionFactory로 감싸서 connection은 inConnection()이 끝날 때 반납되도록 한다.
+                    DatabaseClient connectionClient = DatabaseClient.builder()
+                            .connectionFactory(new SingleConnectionFactory(connection, host.getConnectionFactory().getMetadata(), true))
+                            .build();
+                    results = Flux.fromIterable(sqls)
+                            .concatMap(sql -> readPipelineResult(bindPipelineSql(connectionClient, sql), sql.statement()));
+                }
+                return results.collectList()
+                        .map(values -> assemblePipelineResult(pipeline, values));
+            });
+        });
+    }
+
+    /**
+     * {@code <pipeline>}의 SQL 문 하나를 생성하고 bind 할 값들을 읽어둔다.
+     * MapperContext는 재사용되므로 실행 전에 필요한 값들을 모두 꺼내둬야 한다.
+     */
+    private PipelineSql generatePipelineSql(Query statement, Object[] args) {
+        Map<String, Object> values = new HashMap<>();
+        Map<String, Class<?>> types = new HashMap<>();
+        if (statement.isStaticSql()) {
+            for (BindParam bindParam : getStaticBindParams(statement, paramInfos)) {
+                values.put(bindParam.getName(), bindParam.getValue(args));
+                types.put(bindParam.getName(), bindParam.getType());
+            }
+            return new PipelineSql(statement, statement.getStaticSql(), values, types);
+        }
+
+        try (MapperContext mapperContext = MapperContext.of(paramInfos, args)) {
+            String sql = statement.generateSql(mapperContext);
+            Map<String, BindParam> bindParams = getDynamicBindParams(statement, paramInfos);
+            for (String placeholder : mapperContext.getBindSet()) {
+                BindParam bindParam = bindParams.get(placeholder);
+                values.put(placeholder, bindParam != null ? bindParam.getValue(args) : mapperContext.getBindValue(placeholder));
+                types.put(placeholder, mapperContext.getPlaceholderType(placeholder));
+            }
+            return new PipelineSql(statement, sql, values, types);
+        }
+    }
+
+    /**
+     * bind 할 값이 있는 {@code <pipeline>}의 SQL 문에 값들을 bind 한다.
+     */
+    private static DatabaseClient.GenericExecuteSpec bindPipelineSql(DatabaseClient databaseClient, PipelineSql sql) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.sql());
+        for (Map.Entry<String, Object> entry : sql.values().entrySet()) {
+            if (entry.getValue() == null)
+                spec = spec.bindNull(entry.getKey(), sql.types().get(entry.getKey()));
+            else
+                spec = spec.bind(entry.getKey(), TypeUtils.convertForParam(entry.getValue()));
+        }
+        return spec;
+    }
+
+    /**
+     * {@code <pipeline>}의 SQL 문 하나의 Result를 읽는다. R2DBC Batch로 실행했을 때 사용된다.
+     * {@code <select>}는 모든 행의 List를, 나머지는 영향 받은 행의 갯수를 발행한다.
+     */
+    private Mono<Object> readPipelineResult(Result result, Query statement) {
+        if (statement instanceof Select select) {
+            Flux<Object> rows = (select.getResultMap() != null)
+                    ? ResultMapCollapser.fetch(result, select.getResultMap())
+                    : Flux.from(result.map(new ResultMapper(select.getResultClass(), host.getR2batisProperties().isMapUnderscoreToCamelCase())));
+            return rows.collectList()
+                    .cast(Object.class);
+        }
+        return convertPipelineCount(Flux.from(result.getRowsUpdated()).reduce(0L, Long::sum), statement);
+    }
+
+    /**
+     * bind 된 {@code <pipeline>}의 SQL 문 하나를 실행하고 결과를 읽는다.
+     * {@code <select>}는 모든 행의 List를, 나머지는 영향 받은 행의 갯수를 발행한다.
+     */
+    private Mono<Object> readPipelineResult(DatabaseClient.GenericExecuteSpec spec, Query statement) {
+        if (statement instanceof Select select) {
+            Flux<Object> rows = (select.getResultMap() != null)
+                    ? ResultMapCollapser.fetch(spec, select.getResultMap())
+                    : spec.map(new ResultMapper(select.getResultClass(), host.getR2batisProperties().isMapUnderscoreToCamelCase())).all();
+            return rows.collectList()
+                    .cast(Object.class);
+        }
+        return convertPipelineCount(spec.fetch().rowsUpdated(), statement);
+    }
+
+    private static Mono<Object> convertPipelineCount(Mono<Long> count, Query statement) {
+        Class<?> resultClass = statement.getResultClass();
+        return count.map(value -> (resultClass != null && !resultClass.equals(Long.class)) ? TypeUtils.convert(value, resultClass) : value);
+    }
+
+    /**
+     * {@code <pipeline>}의 실행 결과들을 resultType 객체로 묶는다. resultType이 없으면 결과들의 List를 그대로 반환한다.
+     */
+    private static Object assemblePipelineResult(Pipeline pipeline, List<Object> values) {
+        if (pipeline.getResultClass() == null)
+            return values;
+
+        List<String> fields = new ArrayList<>(values.size());
+        for (int inx = 0; inx < values.size(); inx++) {
+            Query statement = pipeline.getStatements().get(inx);
+            fields.add(statement.getId());
+            if ((statement instanceof Select) && !pipeline.getCollectionResults()[inx]) { // Collection 필드가 아니면 첫 행만 설정한다.
+                List<?> rows = (List<?>) values.get(inx);
+                values.set(inx, rows.isEmpty() ? null : rows.get(0));
+            }
+        }
+        return MappingPlan.of(pipeline.getResultClass(), fields, false).newInstance(values);
+    }
+
+    /**
+     * batch query의 SQL을 DB의 bind marker를 사용하는 SQL로 변환한 BatchSql 객체를 반환한다.
+     * 한 번 생성하면 변동없으므로 캐슁한다.
+     */
+    private BatchSql getBatchSql() {
+        if (batchSql == null) {
             synchronized (this) {
-                if (innerParams == null) {
-                    innerParams = new ParamInfo[parameters.length];
-                    for (int inx = 0; inx < parameters.length; inx++)
-                        innerParams[inx] = new ParamInfo(parameters[inx].getName(), parameters[inx].getType());
+                if (batchSql == null)
+                    batchSql = BatchSql.of(query.getStaticSql(), host.getConnectionFactory());
+            }
+        }
+        return batchSql;
+    }
+
+    /**
+     * batch query의 placeholder 들에 대한 BindParam 들을 반환한다.
+     * 각 요소가 메소드 parameter 이름을 갖는 유일한 argument인 것처럼 취급해서 BindParam을 생성한다.
+     */
+    private Map<String, BindParam> getBatchBindParams() {
+        return batchBindParams.computeIfAbsent(query, q -> {
+            ParamInfo[] rowParamInfos = new ParamInfo[] { new ParamInfo(paramInfos[0].getName(), getElementType(method)) };
+            Map<String, BindParam> bindParams = new HashMap<>();
+            for (String placeholder : q.getStaticPlaceholders())
+                bindParams.put(placeholder, BindParam.of(rowParamInfos, placeholder));
+            return bindParams;
+        });
+    }
+
+    /**
+     * batch query 메소드의 parameter 로 선언된 Collection, 배열의 요소 타입을 반환한다.
+     * 요소 타입을 알 수 없으면 Object.class를 반환한다.
+     */
+    private static Class<?> getElementType(Method method) {
+        Class<?> paramType = method.getParameterTypes()[0];
+        if (paramType.isArray())
+            return paramType.getComponentType();
+
+        Type genericType = method.getGenericParameterTypes()[0];
+        if (genericType instanceof ParameterizedType parameterizedType) {
+            Type elementType = parameterizedType.getActualTypeArguments()[0];
+            if (elementType instanceof Class<?> elementClass)
+                return elementClass;
+            else if ((elementType instanceof ParameterizedType elementParameterizedType) && (elementParameterizedType.getRawType() instanceof Class<?> elementClass))
+                return elementClass;
+        }
+        return Object.class;
+    }
+
+    /**
+     * query의 SQL을 생성하고 placeholder에 값을 bind 한 GenericExecuteSpec 객체를 생성한다.
+     * 동적 요소가 없는 query는 미리 생성된 SQL과 미리 계산된 BindParam 들을 사용하므로 MapperContext를 생성하지 않는다.
+     *
+     * @param databaseClient SQL을 실행할 DatabaseClient 객체.
+     * @param query SQL을 생성할 Query 객체. 본문 query 또는 {@code <selectKey>} 이다.
+     * @param args Mapper 인터페이스의 메소드를 호출할 때 전달된 argument 들.
+     * @param queryKey null이 아니면 생성된 SQL과 bind 된 값들이 채워진다. 결과 캐쉬나 coalesce를 사용할 때만 전달한다.
+     * @return 값이 bind 된 GenericExecuteSpec 객체.
+     */
+    private DatabaseClient.GenericExecuteSpec bindSql(DatabaseClient databaseClient, Query query, Object[] args, QueryKey queryKey) {
+        long startTime = metrics.isEnabled() ? System.nanoTime() : 0L;
+        if (query.isStaticSql()) {
+            DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(query.getStaticSql());
+            if (queryKey != null)
+                queryKey.setSql(query.getStaticSql());
+            for (BindParam bindParam : getStaticBindParams(query, paramInfos)) {
+                Object param = bindParam.getValue(args);
+                if (queryKey != null)
+                    queryKey.addBind(bindParam.getName(), param);
+                if (param == null)
+                    spec = spec.bindNull(bindParam.getName(), bindParam.getType());
+                else
+                    spec = spec.bind(bindParam.getName(), TypeUtils.convertForParam(param));
+            }
+            if (metrics.isEnabled())
+                metrics.recordBinding(System.nanoTime() - startTime); // 정적 SQL은 생성 과정이 없으므로 bind 시간만 기록한다.
+            return spec;
+        } else {
+            try (MapperContext mapperContext = MapperContext.of(paramInfos, args)) { // context는 재사용되므로 bind 가 끝나면 바로 반납한다.
+                String sql = query.generateSql(mapperContext);
+                if (metrics.isEnabled()) {
+                    long generatedTime = System.nanoTime();
+                    metrics.recordSqlGeneration(generatedTime - startTime);
+                    startTime = generatedTime;
+                }
+                DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql);
+                if (queryKey != null)
+                    queryKey.setSql(sql);
+                Map<String, BindParam> bindParams = getDynamicBindParams(query, paramInfos);
+                for (String placeholder : mapperContext.getBindSet()) {
+                    BindParam bindParam = bindParams.get(placeholder);
+                    Object param = bindParam != null
+                            ? bindParam.getValue(args)
+                            : mapperContext.getBindValue(placeholder); // foreach 에서 이름이 바뀐 로컬 변수들은 SQL 생성 시 저장된 값을 사용한다.
+                    if (queryKey != null)
+                        queryKey.addBind(placeholder, param);
+                    if (param == null)
+                        spec = spec.bindNull(placeholder, mapperContext.getPlaceholderType(placeholder));
+                    else
+                        spec = spec.bind(placeholder, TypeUtils.convertForParam(param));
                 }
+                if (metrics.isEnabled())
+                    metrics.recordBinding(System.nanoTime() - startTime);
+                return spec;
             }
         }
-        return innerParams;
+    }
+
+    /**
+     * 정적 SQL을 갖는 query의 placeholder 들에 대한 BindParam 배열을 반환한다.
+     * argument 의 타입 정보는 호출마다 바뀌지 않으므로 query 별로 한 번만 생성해서 캐슁한다.
+     */
+    private BindParam[] getStaticBindParams(Query query, ParamInfo[] paramInfos) {
+        return staticBindParams.computeIfAbsent(query, q -> q.getStaticPlaceholders().stream()
+                .map(placeholder -> BindParam.of(paramInfos, placeholder))
+                .toArray(BindParam[]::new));
+    }
+
+    /**
+     * 동적 SQL을 갖는 query에서 method argument로부터 값을 읽을 수 있는 placeholder 들의 BindParam 들을 반환한다.
+     * foreach 의 item, index 처럼 argument가 아닌 로컬 변수를 참조하는 placeholder 들은 포함되지 않는다.
+     * staticBindParams 와 마찬가지로 query 별로 한 번만 생성해서 캐슁한다.
+     */
+    private Map<String, BindParam> getDynamicBindParams(Query query, ParamInfo[] paramInfos) {
+        return dynamicBindParams.computeIfAbsent(query, q -> {
+            Map<String, BindParam> bindParams = new HashMap<>();
+            for (String placeholder : q.collectPlaceholders()) {
+                try {
+                    bindParams.put(placeholder, BindParam.of(paramInfos, placeholder));
+                } catch (InvalidMapperElementException ignored) {
+                    // argument로부터 찾을 수 없는 placeholder. 로컬 변수이거나 잘못 지정된 것이므로 SQL 생성 시점에 판단된다.
+                }
+            }
+            return bindParams;
+        });
     }
 
     /**
      * Method의 반환값이 Mono냐 Flux냐에 따라서 수행 코드를 결정하여 SQL을 수행하도록 한다.
+     * Flux를 반환하는 {@code <select>}는 fetchSize, prefetch 속성 또는 Reactor Context의 FetchOptions를 적용한다.
      *
      * @param spec DatabaseClient를 통해서 생성한 GenericExecuteSpec 객체
-     * @param method 현재 호출된 Mapper 인터페이스의 Method 객체
      * @param query XML 맵퍼에서 생성된 SQL Query 객체.
      * @return SQL을 수행하고 값을 발행할 Publisher 객체. (Mono 또는 Flux)
      */
-    private Publisher<?> fetchByReturnType(DatabaseClient.GenericExecuteSpec spec, Method method, Query query) {
-        if (Flux.class.isAssignableFrom(method.getReturnType())) {
-            return spec.fetch()
-                    .all()
-                    .map(map -> ReflectionUtils.newInstanceFromMap(map, query.getResultClass(), host.getR2batisProperties().isMapUnderscoreToCamelCase()));
+    private Publisher<?> fetchByReturnType(DatabaseClient.GenericExecuteSpec spec, Query query) {
+        if (query.getResultMap() != null)
+            return fetchByResultMap(spec, (Select) query);
+
+        ResultMapper resultMapper = new ResultMapper(query.getResultClass(), host.getR2batisProperties().isMapUnderscoreToCamelCase());
+        if (fluxReturn) {
+            if (!(query instanceof Select select))
+                return spec.map(resultMapper)
+                        .all();
+
+            return fetchWithOptions(spec, select, fetchSpec -> fetchSpec.map(resultMapper)
+                    .all());
         } else {
-            return spec.fetch()
-                    .one()
-                    .map(map -> ReflectionUtils.newInstanceFromMap(map, query.getResultClass(), host.getR2batisProperties().isMapUnderscoreToCamelCase()));
+            return spec.map(resultMapper)
+                    .one();
+        }
+    }
+
+    /**
+     * resultMap 속성이 지정된 {@code <select>}를 실행해서 조인된 행들을 객체 구조로 묶어서 발행한다.
+     * Mono를 반환하는 메소드라면 모든 행이 하나의 최상위 객체로 묶여야 한다.
+     *
+     * @param spec DatabaseClient를 통해서 생성한 GenericExecuteSpec 객체
+     * @param select XML 맵퍼에서 생성된 {@code <select>} 객체.
+     * @return SQL을 수행하고 묶여진 객체를 발행할 Publisher 객체. (Mono 또는 Flux)
+     */
+    private Publisher<?> fetchByResultMap(DatabaseClient.GenericExecuteSpec spec, Select select) {
+        if (!fluxReturn)
+            return ResultMapCollapser.fetch(spec, select.getResultMap())
+                    .singleOrEmpty();
+
+        return fetchWithOptions(spec, select, fetchSpec -> ResultMapCollapser.fetch(fetchSpec, select.getResultMap()));
+    }
+
+    /**
+     * Flux를 반환하는 {@code <select>}에 fetchSize, prefetch를 적용해서 실행한다.
+     * 호출 단위로 지정된 FetchOptions 값이 {@code <select>}의 속성 값보다 우선한다.
+     *
+     * @param spec DatabaseClient를 통해서 생성한 GenericExecuteSpec 객체
+     * @param select XML 맵퍼에서 생성된 {@code <select>} 객체.
+     * @param fetch fetchSize가 적용된 spec을 실행해서 결과를 발행하는 Flux를 반환하는 함수.
+     * @return prefetch가 적용된 Flux 객체.
+     */
+    private static Flux<Object> fetchWithOptions(DatabaseClient.GenericExecuteSpec spec, Select select, Function<DatabaseClient.GenericExecuteSpec, Flux<Object>> fetch) {
+        return Flux.deferContextual(contextView -> {
+            FetchOptions fetchOptions = FetchOptions.from(contextView);
+            int fetchSize = (fetchOptions != null && fetchOptions.fetchSize() > 0) ? fetchOptions.fetchSize() : select.getFetchSize();
+            int prefetch = (fetchOptions != null && fetchOptions.prefetch() > 0) ? fetchOptions.prefetch() : select.getPrefetch();
+
+            DatabaseClient.GenericExecuteSpec fetchSpec = (fetchSize > 0) ? spec.filter(statement -> statement.fetchSize(fetchSize)) : spec;
+            Flux<Object> flux = fetch.apply(fetchSpec);
+            return (prefetch > 0) ? flux.limitRate(prefetch) : flux; // downstream의 요청과 상관없이 upstream에는 prefetch 단위로 요청한다.
+        });
+    }
+
+    /**
+     * 결과 캐쉬를 사용하는 {@code <select>}를 실행한다.
+     * 캐쉬된 결과가 있으면 DB를 거치지 않고 캐쉬된 결과를 발행하고 없으면 실행해서 발행한 결과를 캐쉬에 저장한다.
+     *
+     * @param spec DatabaseClient를 통해서 생성한 GenericExecuteSpec 객체
+     * @param queryKey 생성된 SQL과 bind 된 값들이 채워진 QueryKey 객체.
+     * @param coalesce true 이면 캐쉬된 결과가 없을 때 동시에 실행 중인 같은 SQL 실행에 합류한다.
+     * @return SQL을 수행하거나 캐쉬된 결과를 발행할 Publisher 객체. (Mono 또는 Flux)
+     */
+    private Publisher<?> fetchWithCache(DatabaseClient.GenericExecuteSpec spec, QueryKey queryKey, boolean coalesce) {
+        List<Object> cached = resultCache.get(queryKey);
+        if (cached != null)
+            return fluxReturn ? Flux.fromIterable(cached) : Mono.justOrEmpty(cached.isEmpty() ? null : cached.get(0));
+
+        long generation = resultCache.getGeneration(); // 실행 중에 캐쉬가 비워지면 결과를 저장하지 않도록 미리 읽어둔다.
+        Publisher<?> fetched = coalesce ? fetchCoalesced(spec, queryKey) : fetchByReturnType(spec, query);
+        if (fluxReturn) {
+            long maxRows = resultCache.getMaxRows();
+            return Flux.defer(() -> {
+                AtomicReference<List<Object>> rows = new AtomicReference<>(new ArrayList<>());
+                return ((Flux<?>) fetched)
+                        .doOnNext(row -> {
+                            List<Object> list = rows.get();
+                            if (list == null)
+                                return;
+                            if (list.size() < maxRows)
+                                list.add(row);
+                            else
+                                rows.set(null); // 한도를 넘는 결과는 어차피 캐슁되지 않으므로 더 모으지 않고 모아둔 행들도 버린다.
+                        })
+                        .doOnComplete(() -> {
+                            List<Object> list = rows.get();
+                            if (list != null)
+                                resultCache.put(queryKey, list, generation);
+                        });
+            });
+        } else {
+            return ((Mono<?>) fetched)
+                    .doOnSuccess(row -> resultCache.put(queryKey, row == null ? List.of() : List.of(row), generation));
+        }
+    }
+
+    /**
+     * coalesce="true"로 지정된 {@code <select>}를 실행한다. Mono를 반환하는 메소드에만 사용된다.
+     * 같은 SQL 문과 같은 bind 값으로 이미 실행 중인 것이 있으면 새로 실행하지 않고 그 실행의 결과를 같이 받는다.
+     * 실행이 끝나면 inFlightQueries 에서 제거되므로 그 이후의 호출은 다시 실행된다.
+     * 합류한 호출들이 모두 취소하면 실행도 취소된다.
+     *
+     * @param spec DatabaseClient를 통해서 생성한 GenericExecuteSpec 객체
+     * @param queryKey 생성된 SQL과 bind 된 값들이 채워진 QueryKey 객체.
+     * @return SQL을 수행하거나 실행 중인 SQL의 결과를 발행할 Mono 객체.
+     */
+    private Mono<Object> fetchCoalesced(DatabaseClient.GenericExecuteSpec spec, QueryKey queryKey) {
+        Mono<Object> shared = inFlightQueries.get(queryKey);
+        if (shared == null) {
+            AtomicReference<Mono<Object>> self = new AtomicReference<>();
+            Mono<Object> created = Mono.<Object>from(fetchByReturnType(spec, query))
+                    .doFinally(signal -> inFlightQueries.remove(queryKey, self.get())) // 다른 호출이 새로 등록한 것은 지우지 않아야 한다.
+                    .flux()
+                    .replay(1) // 결과가 발행된 후에 합류한 subscriber 에게도 결과를 발행한다. 결과는 최대 1개이다.
+                    .refCount() // subscriber가 모두 취소하면 실행도 취소한다.
+                    .singleOrEmpty();
+            self.set(created);
+
+            Mono<Object> prev = inFlightQueries.putIfAbsent(queryKey, created);
+            shared = (prev != null) ? prev : created;
         }
+        return shared;
     }
 
     /**
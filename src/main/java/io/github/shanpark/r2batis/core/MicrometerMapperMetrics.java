@@ -0,0 +1,181 @@
+package io.github.shanpark.r2batis.core;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.context.ApplicationContext;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Micrometer의 MeterRegistry에 Mapper 메소드 호출의 측정값을 기록한다.
+ * micrometer-core 가 classpath 에 있을 때만 로딩되어야 하므로 이 클래스는 InterfaceImpl.createMapperMetrics() 에서만 참조한다.
+ *
+ * 기록되는 meter 들. 모두 mapper, method, databaseId tag를 갖는다.
+ * - r2batis.sql.generation: SQL 문 생성 시간.
+ * - r2batis.sql.binding: 값을 bind 하는 시간.
+ * - r2batis.first.row: 실행 결과를 subscribe 한 시점부터 첫 값이 발행될 때까지의 시간.
+ * - r2batis.execution: 실행 결과를 subscribe 한 시점부터 완료(success), 에러(error), 취소(cancelled)될 때까지의 시간. outcome tag를 갖는다.
+ * - r2batis.rows: 발행된 행의 갯수(kind=emitted) 또는 영향 받은 행의 갯수(kind=updated).
+ * - r2batis.errors: 발생한 에러의 갯수. exception tag를 갖는다.
+ */
+public class MicrometerMapperMetrics implements MapperMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * applicationContext 에 MeterRegistry bean이 있으면 그것을 사용하는 MapperMetrics 객체를 생성한다.
+     *
+     * @param applicationContext MeterRegistry bean을 찾을 ApplicationContext 객체.
+     * @return MeterRegistry bean이 없으면 MapperMetrics.NOOP 을 반환한다.
+     */
+    public static MapperMetrics of(ApplicationContext applicationContext) {
+        MeterRegistry meterRegistry = applicationContext.getBeanProvider(MeterRegistry.class).getIfUnique();
+        return meterRegistry != null ? new MicrometerMapperMetrics(meterRegistry) : MapperMetrics.NOOP;
+    }
+
+    private MicrometerMapperMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public MethodMetrics forMethod(String mapperName, String methodId, String databaseId) {
+        return new MicrometerMethodMetrics(meterRegistry, Tags.of("mapper", mapperName, "method", methodId, "databaseId", databaseId.isBlank() ? "none" : databaseId));
+    }
+
+    private static final class MicrometerMethodMetrics implements MethodMetrics {
+
+        private final MeterRegistry meterRegistry;
+        private final Tags tags;
+
+        // 호출 마다 meter를 찾지 않도록 미리 생성해둔다.
+        private final Timer sqlGenerationTimer;
+        private final Timer bindingTimer;
+        private final Timer firstRowTimer;
+        private final Timer successTimer;
+        private final Timer errorTimer;
+        private final Timer cancelledTimer;
+        private final Counter rowsEmittedCounter;
+        private final Counter rowsUpdatedCounter;
+
+        private MicrometerMethodMetrics(MeterRegistry meterRegistry, Tags tags) {
+            this.meterRegistry = meterRegistry;
+            this.tags = tags;
+
+            sqlGenerationTimer = meterRegistry.timer("r2batis.sql.generation", tags);
+            bindingTimer = meterRegistry.timer("r2batis.sql.binding", tags);
+            firstRowTimer = meterRegistry.timer("r2batis.first.row", tags);
+            successTimer = meterRegistry.timer("r2batis.execution", tags.and("outcome", "success"));
+            errorTimer = meterRegistry.timer("r2batis.execution", tags.and("outcome", "error"));
+            cancelledTimer = meterRegistry.timer("r2batis.execution", tags.and("outcome", "cancelled"));
+            rowsEmittedCounter = meterRegistry.counter("r2batis.rows", tags.and("kind", "emitted"));
+            rowsUpdatedCounter = meterRegistry.counter("r2batis.rows", tags.and("kind", "updated"));
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public void recordSqlGeneration(long nanos) {
+            sqlGenerationTimer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void recordBinding(long nanos) {
+            bindingTimer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void recordError(Throwable error) {
+            // exception 종류는 미리 알 수 없으므로 에러가 발생할 때 찾는다. 에러는 드물게 발생하므로 비용은 문제되지 않는다.
+            meterRegistry.counter("r2batis.errors", tags.and("exception", error.getClass().getSimpleName())).increment();
+        }
+
+        @Override
+        public <T> Mono<T> instrument(Mono<T> mono, boolean rowsUpdated) {
+            return Mono.defer(() -> {
+                Execution execution = new Execution(rowsUpdated);
+                return mono.doOnNext(execution::onNext)
+                        .doOnError(execution::onError)
+                        .doOnSuccess(value -> execution.onComplete())
+                        .doOnCancel(execution::onCancel);
+            });
+        }
+
+        @Override
+        public <T> Flux<T> instrument(Flux<T> flux, boolean rowsUpdated) {
+            return Flux.defer(() -> {
+                Execution execution = new Execution(rowsUpdated);
+                return flux.doOnNext(execution::onNext)
+                        .doOnError(execution::onError)
+                        .doOnComplete(execution::onComplete)
+                        .doOnCancel(execution::onCancel); // take(), next() 처럼 downstream이 필요한 만큼만 받고 취소하는 경우.
+            });
+        }
+
+        /**
+         * subscribe 한 번의 측정 상태.
+         * Reactive Streams 규약에 따라 onNext, onError, onComplete는 동시에 호출되지 않지만 cancel은 다른 thread에서 동시에 올 수 있다.
+         * 따라서 실행 시간과 행의 갯수는 finished로 한 번만 기록되도록 한다.
+         */
+        private final class Execution {
+            private final boolean rowsUpdated;
+            private final long startTime = System.nanoTime();
+            private final AtomicBoolean finished = new AtomicBoolean();
+            private boolean firstRowRecorded = false;
+            private volatile long rows = 0; // onNext에서만 변경된다.
+
+            private Execution(boolean rowsUpdated) {
+                this.rowsUpdated = rowsUpdated;
+            }
+
+            private void onNext(Object value) {
+                if (!firstRowRecorded) {
+                    firstRowTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+                    firstRowRecorded = true;
+                }
+
+                if (!rowsUpdated)
+                    rows++;
+                else if (value instanceof Number count)
+                    rows += count.longValue();
+            }
+
+            private void onError(Throwable error) {
+                if (!finished.compareAndSet(false, true))
+                    return;
+                errorTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+                recordError(error);
+                countRows();
+            }
+
+            private void onComplete() {
+                if (!finished.compareAndSet(false, true))
+                    return;
+                successTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+                countRows();
+            }
+
+            /**
+             * 취소될 때까지 발행된 행들만 센다.
+             */
+            private void onCancel() {
+                if (!finished.compareAndSet(false, true))
+                    return;
+                cancelledTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+                countRows();
+            }
+
+            private void countRows() {
+                if (rows > 0)
+                    (rowsUpdated ? rowsUpdatedCounter : rowsEmittedCounter).increment(rows);
+            }
+        }
+    }
+}
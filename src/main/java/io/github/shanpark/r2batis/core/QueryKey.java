@@ -0,0 +1,46 @@
+package io.github.shanpark.r2batis.core;
+
+import io.github.shanpark.r2batis.mapper.Query;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 실행한 Query와 생성된 SQL 문, placeholder 별로 bind 된 값들로 이루어진 key.
+ * 결과 캐쉬는 namespace의 모든 메소드가 공유하므로 같은 SQL 이라도 resultType, resultMap이 다른 Query의 결과와 섞이지 않도록
+ * Query 객체도 key에 포함한다.
+ * 같은 key를 갖는 실행은 같은 결과를 낸다고 보고 결과 캐쉬와 동시 실행 합치기(coalesce)에 사용된다.
+ * MethodImpl.bindSql()에서 SQL 생성과 bind를 하면서 채워진다.
+ */
+public final class QueryKey {
+    private final Query query; // 같은 요소에서 생성된 Query 객체는 하나이므로 identity로 비교한다.
+    private String sql;
+    private final Map<String, Object> binds = new HashMap<>();
+
+    QueryKey(Query query) {
+        this.query = query;
+    }
+
+    void setSql(String sql) {
+        this.sql = sql;
+    }
+
+    void addBind(String placeholder, Object value) {
+        binds.put(placeholder, value);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof QueryKey key))
+            return false;
+        return query == key.query && Objects.equals(sql, key.sql) && binds.equals(key.binds);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(System.identityHashCode(query), sql, binds);
+    }
+}
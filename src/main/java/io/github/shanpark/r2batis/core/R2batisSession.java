@@ -0,0 +1,139 @@
+package io.github.shanpark.r2batis.core;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.r2dbc.connection.ConnectionFactoryUtils;
+import org.springframework.r2dbc.connection.SingleConnectionFactory;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 여러 mapper 메소드 호출이 하나의 connection을 사용하도록 connection을 잡아두는 session.
+ * session 밖에서는 mapper 메소드를 호출할 때마다 connection pool에서 connection을 얻고 반납한다.
+ * usingConnection()으로 감싼 Mono, Flux 안에서 호출된 mapper 메소드들은 ConnectionFactory 별로 처음 사용될 때 얻은
+ * connection 하나를 계속 사용하고 감싼 Mono, Flux가 종료(완료, 에러, 취소)되면 반납한다.
+ * 서로 다른 {@code @R2batisMapper} 인터페이스의 메소드 호출도 같은 ConnectionFactory를 사용하면 같은 connection을 사용한다.
+ * 트랜잭션 안에서 사용되면 트랜잭션의 connection을 그대로 사용한다.
+ *
+ * <pre>{@code
+ * R2batisSession.usingConnection(
+ *         customerMapper.getCustomer(id)
+ *                 .flatMap(customer -> orderMapper.getOrderCount(customer.getId())));
+ * }</pre>
+ *
+ * 하나의 connection은 SQL 문을 하나씩 실행하므로 session 안의 mapper 메소드 호출들은 순서대로 실행되도록 연결해야 한다.
+ */
+public final class R2batisSession {
+
+    private static final Object CONTEXT_KEY = R2batisSession.class;
+
+    private final Map<ConnectionFactory, Mono<DatabaseClient>> databaseClients = new ConcurrentHashMap<>();
+    private final List<PinnedConnection> pinnedConnections = new ArrayList<>(); // 반납해야 할 connection 들.
+    private boolean closed = false;
+
+    private record PinnedConnection(ConnectionFactory connectionFactory, Connection connection) {}
+
+    private R2batisSession() {
+    }
+
+    /**
+     * mono 안에서 호출되는 mapper 메소드들이 하나의 connection을 사용하도록 한다.
+     * 이미 session 안이라면 바깥 session을 그대로 사용한다.
+     *
+     * @param mono mapper 메소드 호출들로 이루어진 Mono 객체.
+     * @return session 안에서 mono를 실행하는 Mono 객체.
+     */
+    public static <T> Mono<T> usingConnection(Mono<T> mono) {
+        return Mono.deferContextual(contextView -> {
+            if (contextView.hasKey(CONTEXT_KEY))
+                return mono;
+            return Mono.usingWhen(Mono.fromSupplier(R2batisSession::new),
+                    session -> mono.contextWrite(Context.of(CONTEXT_KEY, session)),
+                    R2batisSession::close,
+                    (session, error) -> session.close(),
+                    R2batisSession::close);
+        });
+    }
+
+    /**
+     * flux 안에서 호출되는 mapper 메소드들이 하나의 connection을 사용하도록 한다.
+     * 이미 session 안이라면 바깥 session을 그대로 사용한다.
+     *
+     * @param flux mapper 메소드 호출들로 이루어진 Flux 객체.
+     * @return session 안에서 flux를 실행하는 Flux 객체.
+     */
+    public static <T> Flux<T> usingConnection(Flux<T> flux) {
+        return Flux.deferContextual(contextView -> {
+            if (contextView.hasKey(CONTEXT_KEY))
+                return flux;
+            return Flux.usingWhen(Mono.fromSupplier(R2batisSession::new),
+                    session -> flux.contextWrite(Context.of(CONTEXT_KEY, session)),
+                    R2batisSession::close,
+                    (session, error) -> session.close(),
+                    R2batisSession::close);
+        });
+    }
+
+    /**
+     * Reactor Context에 저장된 session을 찾는다.
+     *
+     * @param contextView 찾을 Reactor Context.
+     * @return 찾은 R2batisSession 객체. session 밖이면 null.
+     */
+    static R2batisSession from(ContextView contextView) {
+        return contextView.getOrDefault(CONTEXT_KEY, null);
+    }
+
+    /**
+     * connectionFactory 에서 얻은 connection 하나만 사용하는 DatabaseClient를 반환한다.
+     * connection은 처음 요청될 때 얻고 이후로는 같은 connection을 사용하는 DatabaseClient를 반환한다.
+     *
+     * @param connectionFactory mapper 인터페이스가 사용하는 ConnectionFactory 객체.
+     * @return session의 connection을 사용하는 DatabaseClient를 발행하는 Mono 객체.
+     */
+    Mono<DatabaseClient> getDatabaseClient(ConnectionFactory connectionFactory) {
+        return databaseClients.computeIfAbsent(connectionFactory, cf ->
+                ConnectionFactoryUtils.getConnection(cf) // 트랜잭션 안이면 트랜잭션의 connection이 반환된다.
+                        .flatMap(connection -> {
+                            synchronized (this) {
+                                if (!closed) {
+                                    pinnedConnections.add(new PinnedConnection(cf, connection));
+                                    // close()가 호출되어도 실제로 닫지 않는 ConnectionFactory로 감싸서 session 종료 시에만 반납되도록 한다.
+                                    SingleConnectionFactory singleConnectionFactory = new SingleConnectionFactory(connection, cf.getMetadata(), true);
+                                    return Mono.just(DatabaseClient.builder()
+                                            .connectionFactory(singleConnectionFactory)
+                                            .build());
+                                }
+                            }
+                            // connection을 얻는 중에 session이 종료(취소 등)되었다면 close()가 이 connection을 보지 못했으므로 바로 반납한다.
+                            return ConnectionFactoryUtils.releaseConnection(connection, cf)
+                                    .then(Mono.error(new IllegalStateException("The R2batisSession is already closed.")));
+                        })
+                        .cache());
+    }
+
+    /**
+     * session이 잡고 있던 connection 들을 모두 반납한다.
+     */
+    private Mono<Void> close() {
+        List<PinnedConnection> connections;
+        synchronized (this) {
+            if (closed)
+                return Mono.empty();
+            closed = true;
+            connections = new ArrayList<>(pinnedConnections);
+            pinnedConnections.clear();
+        }
+        return Flux.fromIterable(connections)
+                .concatMap(pinned -> ConnectionFactoryUtils.releaseConnection(pinned.connection(), pinned.connectionFactory()))
+                .then();
+    }
+}
@@ -0,0 +1,156 @@
+package io.github.shanpark.r2batis.core;
+
+import io.github.shanpark.r2batis.mapper.Cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * namespace(mapper 인터페이스) 단위의 {@code <select>} 결과 캐쉬.
+ * 생성된 SQL 문과 bind 된 값들을 key로 하고 결과 행들의 List를 값으로 저장한다.
+ * 결과 행의 갯수를 용량으로 보고 합계가 size를 넘으면 eviction 방식에 따라 결과들을 제거한다.
+ * 캐쉬된 결과 객체는 호출한 쪽들이 공유하므로 변경하지 않아야 한다.
+ */
+public class ResultCache {
+
+    private final Cache config;
+    private final Map<QueryKey, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong totalWeight = new AtomicLong();
+    private final AtomicLong clock = new AtomicLong(); // LRU를 위한 논리 시각. System.nanoTime() 보다 가볍다.
+
+    /**
+     * clear()가 호출될 때 마다 증가한다.
+     * 조회를 시작한 후 결과를 저장하기 전에 캐쉬가 비워졌다면 그 결과는 이미 오래된 것일 수 있으므로 저장하지 않는다.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private static final class Entry {
+        private final List<Object> rows;
+        private final long weight;
+        private final long expireTime; // System.nanoTime() 기준. 0 이면 만료되지 않는다.
+        private volatile long lastAccess;
+        private final AtomicLong hits = new AtomicLong();
+
+        private Entry(List<Object> rows, long expireTime, long lastAccess) {
+            this.rows = rows;
+            this.weight = Math.max(rows.size(), 1); // 빈 결과도 용량을 조금은 차지한다.
+            this.expireTime = expireTime;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    public ResultCache(Cache config) {
+        this.config = config;
+    }
+
+    /**
+     * 캐쉬된 결과를 찾는다.
+     *
+     * @param key 생성된 SQL 문과 bind 된 값들로 만든 QueryKey 객체.
+     * @return 캐쉬된 결과 행들의 List 객체. 없거나 만료되었으면 null.
+     */
+    public List<Object> get(QueryKey key) {
+        Entry entry = entries.get(key);
+        if (entry == null)
+            return null;
+
+        if (entry.expireTime != 0 && System.nanoTime() - entry.expireTime > 0) {
+            remove(key, entry);
+            return null;
+        }
+
+        entry.lastAccess = clock.incrementAndGet();
+        entry.hits.incrementAndGet();
+        return entry.rows;
+    }
+
+    /**
+     * 현재 generation 값을 반환한다. 조회를 시작하기 전에 읽어두고 put()에 전달해야 한다.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * 하나의 결과로 캐슁할 수 있는 최대 행 갯수를 반환한다. 이보다 많은 행을 가진 결과는 put() 해도 저장되지 않는다.
+     */
+    public long getMaxRows() {
+        return config.getSize();
+    }
+
+    /**
+     * 결과를 캐슁한다. 조회를 시작한 후에 캐쉬가 비워졌다면 저장하지 않는다.
+     *
+     * @param key 생성된 SQL 문과 bind 된 값들로 만든 QueryKey 객체.
+     * @param rows 결과 행들의 List 객체.
+     * @param generation 조회를 시작하기 전에 getGeneration()으로 읽어둔 값.
+     */
+    public void put(QueryKey key, List<Object> rows, long generation) {
+        if (generation != this.generation.get())
+            return;
+
+        long expireTime = config.getFlushInterval() > 0 ? System.nanoTime() + config.getFlushInterval() * 1_000_000L : 0L;
+        Entry entry = new Entry(List.copyOf(rows), expireTime, clock.incrementAndGet());
+        if (entry.weight > config.getSize())
+            return; // 혼자서 한도를 넘는 결과는 캐슁하지 않는다.
+
+        Entry old = entries.put(key, entry);
+        totalWeight.addAndGet(entry.weight - (old != null ? old.weight : 0));
+        if (generation != this.generation.get()) {
+            // 처음 확인한 후 저장하기 전에 clear()가 실행되었다면 clear()가 이 결과를 보지 못했을 수 있으므로 직접 제거한다.
+            remove(key, entry);
+            return;
+        }
+        if (totalWeight.get() > config.getSize())
+            evict();
+    }
+
+    /**
+     * 캐쉬를 비운다. namespace의 {@code <insert>}, {@code <update>}, {@code <delete>} 가 실행된 후 호출된다.
+     */
+    public void clear() {
+        generation.incrementAndGet();
+        for (Map.Entry<QueryKey, Entry> mapEntry : entries.entrySet())
+            remove(mapEntry.getKey(), mapEntry.getValue());
+    }
+
+    private void remove(QueryKey key, Entry entry) {
+        if (entries.remove(key, entry))
+            totalWeight.addAndGet(-entry.weight);
+    }
+
+    /**
+     * 한도의 90%가 될 때까지 결과들을 제거한다. 제거할 때 마다 정렬하지 않도록 한 번에 여유를 두고 제거한다.
+     * 만료된 결과들을 먼저 제거하고 그래도 넘으면 eviction 방식에 따라 제거한다.
+     */
+    private synchronized void evict() {
+        if (totalWeight.get() <= config.getSize())
+            return; // 다른 thread가 이미 제거했다.
+
+        long now = System.nanoTime();
+        List<Map.Entry<QueryKey, Entry>> candidates = new ArrayList<>(entries.entrySet());
+        for (Map.Entry<QueryKey, Entry> mapEntry : candidates) {
+            Entry entry = mapEntry.getValue();
+            if (entry.expireTime != 0 && now - entry.expireTime > 0)
+                remove(mapEntry.getKey(), entry);
+        }
+
+        long target = config.getSize() * 9 / 10;
+        if (totalWeight.get() <= target)
+            return;
+
+        Comparator<Map.Entry<QueryKey, Entry>> comparator = config.getEviction() == Cache.Eviction.LFU
+                ? Comparator.comparingLong(mapEntry -> mapEntry.getValue().hits.get())
+                : Comparator.comparingLong(mapEntry -> mapEntry.getValue().lastAccess);
+        candidates.sort(comparator);
+        for (Map.Entry<QueryKey, Entry> mapEntry : candidates) {
+            if (totalWeight.get() <= target)
+                break;
+            remove(mapEntry.getKey(), mapEntry.getValue());
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package io.github.shanpark.r2batis.core;
+
+import io.github.shanpark.r2batis.exception.InvalidMapperElementException;
+import io.github.shanpark.r2batis.mapper.ResultMap;
+import io.github.shanpark.r2batis.util.MappingPlan;
+import io.r2dbc.spi.ColumnMetadata;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * {@code <resultMap>}이 지정된 {@code <select>}의 조인된 행들을 객체 구조로 묶는다.
+ * 최상위 객체의 id 값이 바뀔 때마다 그때까지 모은 객체를 바로 발행하므로 메모리에는 현재 묶고 있는 최상위 객체 하나만 유지된다.
+ * 따라서 결과의 행들은 최상위 객체의 id 순으로 정렬되어 있어야 한다. (ORDER BY)
+ *
+ * 구독 마다 상태를 가지므로 fetch()가 구독 마다 새 객체를 생성한다.
+ */
+public class ResultMapCollapser {
+
+    private static final Object NONE = new Object(); // 아직 발행할 객체가 없는 행을 표시한다.
+
+    private final ResultMap resultMap;
+
+    private RowMetadata metadata;
+    private Binding binding;
+    private Node current; // 현재 묶고 있는 최상위 객체.
+
+    private ResultMapCollapser(ResultMap resultMap) {
+        this.resultMap = resultMap;
+    }
+
+    /**
+     * spec을 실행해서 결과 행들을 resultMap의 객체 구조로 묶어서 발행하는 Flux를 반환한다.
+     *
+     * @param spec DatabaseClient를 통해서 생성한 GenericExecuteSpec 객체
+     * @param resultMap 행들을 묶을 방법을 정의한 ResultMap 객체.
+     * @return 묶여진 최상위 객체들을 발행하는 Flux 객체.
+     */
+    public static Flux<Object> fetch(DatabaseClient.GenericExecuteSpec spec, ResultMap resultMap) {
+        return collapse(mapper -> spec.map(mapper).all(), resultMap);
+    }
+
+    /**
+     * R2DBC Result의 행들을 resultMap의 객체 구조로 묶어서 발행하는 Flux를 반환한다. {@code <pipeline>}에서 사용된다.
+     *
+     * @param result 행들을 읽을 Result 객체.
+     * @param resultMap 행들을 묶을 방법을 정의한 ResultMap 객체.
+     * @return 묶여진 최상위 객체들을 발행하는 Flux 객체.
+     */
+    public static Flux<Object> fetch(Result result, ResultMap resultMap) {
+        return collapse(mapper -> Flux.from(result.map(mapper)), resultMap);
+    }
+
+    private static Flux<Object> collapse(Function<BiFunction<Row, RowMetadata, Object>, Flux<Object>> rows, ResultMap resultMap) {
+        return Flux.defer(() -> {
+            ResultMapCollapser collapser = new ResultMapCollapser(resultMap);
+            return rows.apply(collapser::accept)
+                    .filter(obj -> obj != NONE)
+                    .concatWith(Mono.fromSupplier(collapser::finish)); // 마지막 객체는 결과가 끝나야 완성된다.
+        });
+    }
+
+    /**
+     * 행을 현재 객체에 합친다. 최상위 객체의 id가 바뀌었으면 이전 객체를 완성해서 반환한다.
+     * Row는 이 메소드 안에서만 유효하므로 필요한 값들은 모두 여기서 읽어둔다.
+     */
+    private Object accept(Row row, RowMetadata rowMetadata) {
+        if (binding == null || metadata != rowMetadata) {
+            binding = new Binding(resultMap, columnIndexes(rowMetadata));
+            metadata = rowMetadata;
+        }
+
+        Object key = binding.key(row);
+        Object completed = NONE;
+        if (current != null && !Objects.equals(current.key, key)) {
+            completed = current.build();
+            current = null;
+        }
+        if (current == null)
+            current = new Node(binding, key, row);
+        current.merge(row);
+        return completed;
+    }
+
+    private Object finish() {
+        Node last = current;
+        current = null;
+        return last != null ? last.build() : null;
+    }
+
+    private static Map<String, Integer> columnIndexes(RowMetadata rowMetadata) {
+        List<? extends ColumnMetadata> columns = rowMetadata.getColumnMetadatas();
+        Map<String, Integer> indexes = new HashMap<>();
+        for (int inx = 0; inx < columns.size(); inx++) {
+            indexes.putIfAbsent(columns.get(inx).getName(), inx);
+            indexes.putIfAbsent(columns.get(inx).getName().toLowerCase(Locale.ROOT), inx); // DB에 따라 컬럼 이름의 대소문자가 바뀐다.
+        }
+        return indexes;
+    }
+
+    /**
+     * ResultMap의 컬럼들을 결과의 컬럼 위치로 해석해둔 것. 결과의 컬럼 구성이 바뀔 때만 다시 생성된다.
+     */
+    private static final class Binding {
+        private final int[] idIndexes;
+        private final int[] resultIndexes;
+        private final Binding[] associations;
+        private final Binding[] collections;
+        private final MappingPlan plan; // 필드 순서: result, association, collection
+
+        Binding(ResultMap resultMap, Map<String, Integer> columnIndexes) {
+            idIndexes = resultMap.getIdMappings().stream()
+                    .mapToInt(mapping -> indexOf(columnIndexes, mapping.column()))
+                    .toArray();
+            resultIndexes = resultMap.getResultMappings().stream()
+                    .mapToInt(mapping -> indexOf(columnIndexes, mapping.column()))
+                    .toArray();
+            associations = resultMap.getAssociations().stream()
+                    .map(association -> new Binding(association, columnIndexes))
+                    .toArray(Binding[]::new);
+            collections = resultMap.getCollections().stream()
+                    .map(collection -> new Binding(collection, columnIndexes))
+                    .toArray(Binding[]::new);
+
+            List<String> properties = new ArrayList<>();
+            resultMap.getResultMappings().forEach(mapping -> properties.add(mapping.property()));
+            resultMap.getAssociations().forEach(association -> properties.add(association.getProperty()));
+            resultMap.getCollections().forEach(collection -> properties.add(collection.getProperty()));
+            plan = MappingPlan.of(resultMap.getType(), properties, false);
+        }
+
+        private static int indexOf(Map<String, Integer> columnIndexes, String column) {
+            Integer index = columnIndexes.get(column);
+            if (index == null)
+                index = columnIndexes.get(column.toLowerCase(Locale.ROOT));
+            if (index == null)
+                throw new InvalidMapperElementException(String.format("The column '%s' of the resultMap is not in the result.", column));
+            return index;
+        }
+
+        /**
+         * row에서 이 객체를 구분하는 id 값을 읽는다. id 컬럼이 모두 null 이면 (outer join으로 하위 객체가 없는 행) null을 반환한다.
+         */
+        Object key(Row row) {
+            if (idIndexes.length == 1)
+                return row.get(idIndexes[0]);
+
+            Object[] values = new Object[idIndexes.length];
+            boolean allNull = true;
+            for (int inx = 0; inx < idIndexes.length; inx++) {
+                values[inx] = row.get(idIndexes[inx]);
+                allNull &= (values[inx] == null);
+            }
+            return allNull ? null : Arrays.asList(values);
+        }
+    }
+
+    /**
+     * 묶고 있는 객체 하나. 첫 행에서 필드 값들을 읽어두고 이후 행들에서는 하위 객체들만 합친다.
+     * 객체는 build()에서 한 번에 생성되므로 record 같은 불변 객체도 사용할 수 있다.
+     */
+    private static final class Node {
+        private final Binding binding;
+        private final Object key;
+        private final Object[] values;
+        private final Node[] associations;
+        private final Map<Object, Node>[] collections; // id -> 하위 객체. 같은 하위 객체가 여러 행에 나와도 한 번만 추가된다.
+
+        @SuppressWarnings("unchecked")
+        Node(Binding binding, Object key, Row row) {
+            this.binding = binding;
+            this.key = key;
+            values = new Object[binding.resultIndexes.length];
+            for (int inx = 0; inx < values.length; inx++)
+                values[inx] = row.get(binding.resultIndexes[inx]);
+            associations = new Node[binding.associations.length];
+            collections = new Map[binding.collections.length];
+            for (int inx = 0; inx < collections.length; inx++)
+                collections[inx] = new LinkedHashMap<>();
+        }
+
+        void merge(Row row) {
+            for (int inx = 0; inx < associations.length; inx++) {
+                Binding child = binding.associations[inx];
+                if (associations[inx] == null) {
+                    Object childKey = child.key(row);
+                    if (childKey == null)
+                        continue;
+                    associations[inx] = new Node(child, childKey, row);
+                }
+                associations[inx].merge(row);
+            }
+
+            for (int inx = 0; inx < collections.length; inx++) {
+                Binding child = binding.collections[inx];
+                Object childKey = child.key(row);
+                if (childKey == null)
+                    continue;
+                collections[inx].computeIfAbsent(childKey, k -> new Node(child, k, row)).merge(row);
+            }
+        }
+
+        Object build() {
+            List<Object> fieldValues = new ArrayList<>(values.length + associations.length + collections.length);
+            fieldValues.addAll(Arrays.asList(values));
+            for (Node association : associations)
+                fieldValues.add(association != null ? association.build() : null);
+            for (Map<Object, Node> collection : collections) {
+                List<Object> children = new ArrayList<>(collection.size());
+                for (Node child : collection.values())
+                    children.add(child.build());
+                fieldValues.add(children);
+            }
+            return binding.plan.newInstance(fieldValues);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package io.github.shanpark.r2batis.core;
+
+import io.github.shanpark.r2batis.util.MappingPlan;
+import io.github.shanpark.r2batis.util.TypeUtils;
+import io.r2dbc.spi.ColumnMetadata;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * 쿼리 결과의 Row를 결과 타입 객체로 바로 변환하는 함수 객체.
+ * DatabaseClient가 각 행을 Map으로 복사하는 과정 없이 Row에서 컬럼 위치로 값을 읽는다.
+ * 컬럼 구성은 RowMetadata 객체가 바뀔 때만 다시 확인하므로 같은 결과의 행들은 MappingPlan을 찾는 비용도 없다.
+ */
+public class ResultMapper implements BiFunction<Row, RowMetadata, Object> {
+
+    private record PlanState(RowMetadata metadata, MappingPlan plan) {}
+
+    private final Class<?> resultClass;
+    private final boolean mapUnderscoreToCamelCase;
+    private final boolean scalar;
+
+    private PlanState planState; // 여러 스레드에서 보더라도 다시 계산될 뿐이므로 volatile일 필요 없다.
+
+    public ResultMapper(Class<?> resultClass, boolean mapUnderscoreToCamelCase) {
+        this.resultClass = resultClass;
+        this.mapUnderscoreToCamelCase = mapUnderscoreToCamelCase;
+        this.scalar = TypeUtils.supports(resultClass);
+    }
+
+    @Override
+    public Object apply(Row row, RowMetadata metadata) {
+        if (scalar) // POJO가 아닌 DB의 primitive 타입이라면 첫번째 컬럼의 값을 변환해서 반환한다.
+            return TypeUtils.convert(row.get(0), resultClass);
+
+        PlanState state = planState;
+        if (state == null || state.metadata() != metadata) {
+            List<String> columns = metadata.getColumnMetadatas().stream()
+                    .map(ColumnMetadata::getName)
+                    .toList();
+            state = new PlanState(metadata, MappingPlan.of(resultClass, columns, mapUnderscoreToCamelCase));
+            planState = state;
+        }
+        return state.plan().newInstance(row);
+    }
+}
@@ -0,0 +1,41 @@
+package io.github.shanpark.r2batis.mapper;
+
+import io.github.shanpark.r2batis.exception.InvalidMapperElementException;
+import lombok.Getter;
+import org.w3c.dom.Element;
+
+/**
+ * {@code <cache>} 요소. namespace(mapper 인터페이스) 단위로 {@code <select>} 결과를 캐슁하는 설정이다.
+ * MyBatis의 {@code <cache>}와 비슷하지만 size는 캐슁된 결과들의 행 갯수의 합계 한도이다.
+ * 결과가 여러 행이면 그 만큼의 용량을 차지한다.
+ */
+@Getter
+public final class Cache {
+
+    public enum Eviction { LRU, LFU }
+
+    private final Eviction eviction; // 한도를 넘었을 때 제거할 결과를 고르는 방법. 기본값은 LRU.
+    private final long size; // 캐슁할 수 있는 행 갯수의 합계 한도. 기본값은 1024.
+    private final long flushInterval; // 결과가 캐슁된 후 유효한 시간(ms). 0 이면 만료되지 않는다.
+
+    public Cache(Element element) {
+        String evictionStr = element.getAttribute("eviction").trim();
+        String sizeStr = element.getAttribute("size").trim();
+        String flushIntervalStr = element.getAttribute("flushInterval").trim();
+
+        try {
+            eviction = evictionStr.isBlank() ? Eviction.LRU : Eviction.valueOf(evictionStr.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidMapperElementException(String.format("The 'eviction' attribute of the <cache> element can have two values: 'LRU' or 'LFU'. [%s]", evictionStr), e);
+        }
+
+        try {
+            size = sizeStr.isBlank() ? 1024L : Long.parseLong(sizeStr);
+            flushInterval = flushIntervalStr.isBlank() ? 0L : Long.parseLong(flushIntervalStr);
+        } catch (NumberFormatException e) {
+            throw new InvalidMapperElementException("The 'size' and 'flushInterval' attributes of the <cache> element should be numbers.", e);
+        }
+        if (size <= 0 || flushInterval < 0)
+            throw new InvalidMapperElementException("The 'size' attribute of the <cache> element should be positive and the 'flushInterval' attribute should not be negative.");
+    }
+}
@@ -7,6 +7,7 @@ import org.w3c.dom.NodeList;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 public final class Choose extends SqlNode {
 
@@ -51,4 +52,12 @@ public final class Choose extends SqlNode {
 
         return "";
     }
+
+    @Override
+    public void collectPlaceholders(Set<String> placeholders) {
+        for (If sqlNode : whenNodes)
+            sqlNode.collectPlaceholders(placeholders);
+        if (otherwise != null)
+            otherwise.collectPlaceholders(placeholders);
+    }
 }
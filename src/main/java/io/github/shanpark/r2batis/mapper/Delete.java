@@ -20,5 +20,7 @@ public class Delete extends Query {
                 sqlNodes.add(SqlNode.newSqlNode((Element) node));
             }
         }
+
+        prepareStaticSql();
     }
 }
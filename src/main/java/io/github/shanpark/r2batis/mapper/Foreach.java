@@ -7,10 +7,11 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Set;
 
 @Getter
 public final class Foreach extends SqlNode {
@@ -23,6 +24,13 @@ public final class Foreach extends SqlNode {
     private final String close;
     private final String separator;
 
+    /**
+     * bucket 속성으로 지정된 반복 횟수 단위. null 이면 bucket 기능을 사용하지 않는다.
+     * 지정되면 collection의 크기를 다음 bucket 크기까지 늘려서 반복하므로 크기가 조금씩 다른 collection 들이 같은 SQL 문을 생성하게 된다.
+     * 빈 배열이면 2의 거듭제곱(1, 2, 4, 8 ...)을 bucket 크기로 사용한다.
+     */
+    private final int[] buckets;
+
     private final String uniqueId;
     private final List<SqlNode> sqlNodes = new ArrayList<>();
 
@@ -36,6 +44,7 @@ public final class Foreach extends SqlNode {
         open = element.getAttribute("open");
         close = element.getAttribute("close");
         separator = element.getAttribute("separator");
+        buckets = parseBuckets(element.getAttribute("bucket").trim());
         uniqueId = String.valueOf(uid.incrementAndGet());
 
         NodeList nodeList = element.getChildNodes();
@@ -59,46 +68,42 @@ public final class Foreach extends SqlNode {
 
         if (!collectionParam.isEmpty()) {
             StringBuilder sb = new StringBuilder();
-            StringBuilder tempSb = new StringBuilder();
 
-            int inx = 0;
-            for (Object collectionItem : collectionParam) {
-                mapperContext.newBranch("_" + inx);
+            // bucket이 지정되었으면 bucket 크기까지 마지막 요소와 index를 반복해서 채운다.
+            int size = collectionParam.size();
+            int expandSize = getBucketSize(size);
+            Iterator<?> iterator = collectionParam.iterator();
+            Object collectionItem = null;
+            for (int inx = 0; inx < expandSize; inx++) {
+                if (inx < size)
+                    collectionItem = iterator.next();
+                int itemIndex = Math.min(inx, size - 1);
+
+                mapperContext.newBranch("_" + inx); // 반복해서 채우는 요소도 새로운 이름으로 bind 해야 bucket 내에서 SQL 문이 같아진다.
 
                 // index, item으로 지정된 값들을 local var 로 추가해준다.
+                // 하위 Sql 노드들은 SQL을 생성하면서 이 로컬 변수를 참조하는 placeholder를 여기서 부여한 새 이름으로 바로 바꿔서 생성한다.
                 if (!index.isBlank())
-                    mapperContext.pushLocalVar(index, Integer.class, inx); // index 이름으로 local var를 하나 추가한다.
+                    mapperContext.pushLocalVar(index, Integer.class, itemIndex, getNewIndexName(mapperContext)); // index 이름으로 local var를 하나 추가한다.
                 if (!item.isBlank())
-                    mapperContext.pushLocalVar(item, collectionItem.getClass(), collectionItem); // item 이름으로 local var를 하나 추가한다.
+                    mapperContext.pushLocalVar(item, collectionItem.getClass(), collectionItem, getNewItemName(mapperContext)); // item 이름으로 local var를 하나 추가한다.
 
-                // 실제 SQL 생성.
+                // 실제 SQL 생성. 구분자를 먼저 붙여보고 생성된 SQL이 없으면 다시 잘라낸다.
+                int itemStart = sb.length();
+                if (itemStart > 0)
+                    sb.append(separator);
+                int sqlStart = sb.length();
                 for (SqlNode sqlNode : sqlNodes)
-                    tempSb.append(sqlNode.generateSql(mapperContext)); // generateSql()은 trim을 해서 보내므로 따로 trim()은 필요없다.
-
-                // 생성된 SQL 에서 item, index 참조하는 부분도 새 이름으로 바꿔줘야 한다.
-                if (!tempSb.isEmpty()) {
-                    tempSb.append(' '); // SQL의 맨 마지막에 있는 :item, :index 에 매칭하려면 맨 뒤에 공백이 하나 붙어야 한다.
-                    String sql = tempSb.toString();
-                    if (!item.isBlank()) {
-                        mapperContext.expandPlaceholder(item, getNewItemName(mapperContext));
-                        sql = expandLocalPlaceholder(sql, item, getNewItemName(mapperContext));
-                        mapperContext.popLocalVar(); // item 로컬 변수 제거. 이름이 없어도 push 의 역순으로 호출되면 문제 없다.
-                    }
-                    if (!index.isBlank()) {
-                        mapperContext.expandPlaceholder(index, getNewIndexName(mapperContext));
-                        sql = expandLocalPlaceholder(sql, index, getNewIndexName(mapperContext));
-                        mapperContext.popLocalVar(); // index 로컬 변수 제거. 이름이 없어도 push 의 역순으로 호출되면 문제 없다.
-                    }
-
-                    if (!sb.isEmpty())
-                        sb.append(separator);
-                    sb.append(sql.trim());
-                }
-
-                tempSb.setLength(0);
+                    sb.append(sqlNode.generateSql(mapperContext)); // generateSql()은 trim을 해서 보내므로 따로 trim()은 필요없다.
+                if (sb.length() == sqlStart)
+                    sb.setLength(itemStart);
+
+                if (!item.isBlank())
+                    mapperContext.popLocalVar(); // item 로컬 변수 제거. 이름이 없어도 push 의 역순으로 호출되면 문제 없다.
+                if (!index.isBlank())
+                    mapperContext.popLocalVar(); // index 로컬 변수 제거. 이름이 없어도 push 의 역순으로 호출되면 문제 없다.
 
                 mapperContext.mergeBranch();
-                inx++;
             }
 
             return ((open.isBlank() ? "" : open + " ") +
@@ -109,6 +114,58 @@ public final class Foreach extends SqlNode {
         }
     }
 
+    /**
+     * bucket 속성 값을 분석한다.
+     * "true" 이면 2의 거듭제곱을 사용하고 "10,50,100" 처럼 ','로 구분된 크기 목록이면 그 목록을 사용한다.
+     *
+     * @param bucket bucket 속성 값.
+     * @return bucket 크기 목록. 속성이 없거나 "false" 이면 null, "true" 이면 빈 배열.
+     */
+    private static int[] parseBuckets(String bucket) {
+        if (bucket.isBlank() || bucket.equalsIgnoreCase("false"))
+            return null;
+        if (bucket.equalsIgnoreCase("true"))
+            return new int[0];
+
+        try {
+            int[] buckets = Arrays.stream(bucket.split(","))
+                    .map(String::trim)
+                    .mapToInt(Integer::parseInt)
+                    .toArray();
+            for (int inx = 0; inx < buckets.length; inx++) {
+                if (buckets[inx] <= 0 || (inx > 0 && buckets[inx] <= buckets[inx - 1]))
+                    throw new InvalidMapperElementException(String.format("The 'bucket' attribute of the <foreach> element must be ascending positive numbers. [%s]", bucket));
+            }
+            return buckets;
+        } catch (NumberFormatException e) {
+            throw new InvalidMapperElementException(String.format("The 'bucket' attribute of the <foreach> element is invalid. [%s]", bucket), e);
+        }
+    }
+
+    /**
+     * collection 크기에 맞는 bucket 크기를 반환한다.
+     * 지정된 목록의 가장 큰 값보다 크면 가장 큰 값의 배수로 올린다.
+     *
+     * @param size collection의 크기. 0 보다 크다.
+     * @return 실제로 반복할 횟수. bucket을 사용하지 않으면 size 그대로이다.
+     */
+    private int getBucketSize(int size) {
+        if (buckets == null)
+            return size;
+
+        if (buckets.length == 0) { // 2의 거듭제곱
+            int bucketSize = Integer.highestOneBit(size);
+            return bucketSize == size ? size : bucketSize << 1;
+        }
+
+        for (int bucketSize : buckets) {
+            if (size <= bucketSize)
+                return bucketSize;
+        }
+        int largest = buckets[buckets.length - 1];
+        return ((size + largest - 1) / largest) * largest;
+    }
+
     private String getNewItemName(MapperContext mapperContext) {
         // 중첩되지 않은 2개 이상의 foreach와 중첩된 foreach를 모두 고려해서 전체 sql 내에서 유일한 식별자 값이 되려면
         // foreach의 uniqueId, branch의 uniqueId 모두 들어가야 전체 sql 내에서 유일하게 된다.
@@ -119,31 +176,9 @@ public final class Foreach extends SqlNode {
         return index + "_" + uniqueId + mapperContext.getUniqueId();
     }
 
-    /**
-     * foreach 요소에서 생성되는 로컬 변수인 item, index를 사용한 placeholder들을 중첩되어도 문제가 없도록
-     * 새로운 이름으로 교체해준다.
-     *
-     * @param generated 로컬 변수이름을 그대로 사용해서 생성된 SQL
-     * @param placeholder item 또는 index 속성으로 지정된 이름
-     * @param newPlaceholder foreach 내에서 고유하게 사용될 item, index의 새로운 이름.
-     * @return ':item', ':index' 형태로 사용된 placeholder들을 모두 찾아서 새로 부여된 이름의 item, index로 바꾼 SQL을 반환.
-     */
-    private String expandLocalPlaceholder(String generated, String placeholder, String newPlaceholder) {
-        String regex = ":" + placeholder + "\\W"; // 항상 id 뒤에 문자 하나는 있을 것이다. 호출되기 전에 " "을 하나 붙이기 때문에
-        String replace = ":" + newPlaceholder;
-
-        Pattern pattern = Pattern.compile(regex);
-        Matcher matcher = pattern.matcher(generated);
-        int begin = 0;
-        while (true) {
-            if (matcher.find(begin)) {
-                generated = generated.substring(0, matcher.start()) + replace + generated.substring(matcher.end() - 1);
-
-                begin = matcher.start() + replace.length();
-                matcher = pattern.matcher(generated);
-            } else {
-                return generated; // 더 이상 없으면 중단.
-            }
-        }
+    @Override
+    public void collectPlaceholders(Set<String> placeholders) {
+        for (SqlNode sqlNode : sqlNodes)
+            sqlNode.collectPlaceholders(placeholders);
     }
 }
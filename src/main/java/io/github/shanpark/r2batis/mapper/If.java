@@ -1,7 +1,6 @@
 package io.github.shanpark.r2batis.mapper;
 
 import io.github.shanpark.r2batis.exception.InvalidMapperElementException;
-import ognl.Ognl;
 import ognl.OgnlException;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -9,15 +8,16 @@ import org.w3c.dom.NodeList;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 public final class If extends SqlNode {
 
-    private final String test;
+    private final OgnlExpression test; // 매번 parse 하지 않도록 parse 된 상태로 보관한다.
 
     private final List<SqlNode> sqlNodes = new ArrayList<>();
 
     public If(Element element) {
-        test = element.getAttribute("test");
+        test = new OgnlExpression(element.getAttribute("test"));
 
         NodeList nodeList = element.getChildNodes();
         for (int inx = 0; inx < nodeList.getLength(); inx++) {
@@ -36,7 +36,7 @@ public final class If extends SqlNode {
     @Override
     public String generateSql(MapperContext mapperContext) {
         try {
-            if ((Boolean) Ognl.getValue(test, mapperContext.getParamMap())) { // test 조건 검사. 현 시점 이전에 생성된 모든 로컬 변수까지도 반영되어야 하므로 getParamMap()을 사용하는 게 맞다.
+            if ((Boolean) test.getValue(mapperContext)) { // test 조건 검사. 현 시점 이전에 생성된 모든 로컬 변수까지도 반영되어야 하므로 getParamMap()을 root로 평가한다.
                 StringBuilder sb = new StringBuilder();
                 for (SqlNode sqlNode : sqlNodes)
                     sb.append(sqlNode.generateSql(mapperContext)).append(" "); // 하위 노드가 생성한 sql뒤에 항상 공백을 붙인다.
@@ -48,4 +48,10 @@ public final class If extends SqlNode {
             throw new InvalidMapperElementException("The 'test' expression provided is invalid.", e);
         }
     }
+
+    @Override
+    public void collectPlaceholders(Set<String> placeholders) {
+        for (SqlNode sqlNode : sqlNodes)
+            sqlNode.collectPlaceholders(placeholders);
+    }
 }
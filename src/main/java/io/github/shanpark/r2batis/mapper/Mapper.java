@@ -1,5 +1,6 @@
 package io.github.shanpark.r2batis.mapper;
 
+import io.github.shanpark.r2batis.exception.InvalidMapperElementException;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.w3c.dom.Element;
@@ -7,7 +8,9 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Data
@@ -15,6 +18,8 @@ public class Mapper {
 
     private final String interfaceName;
     private final List<Query> queryList = new ArrayList<>();
+    private final Map<String, ResultMap> resultMaps = new HashMap<>(); // id -> <resultMap>
+    private Cache cache; // {@code <cache>} 요소가 없으면 null.
 
     public Mapper() {
         interfaceName = ""; // 이렇게 생성된 Mapper는 empty mapper 역할일 뿐 mapper 처리하는 루틴에서 아무 일도 하지 않도록 한다.
@@ -29,18 +34,31 @@ public class Mapper {
         interfaceName = root.getAttribute("namespace").trim();
 
         NodeList nodeList = root.getChildNodes();
+        // <select>의 resultMap 속성이 뒤에 정의된 <resultMap>도 참조할 수 있도록 <resultMap>들을 먼저 분석한다.
+        for (int inx = 0; inx < nodeList.getLength(); inx++) {
+            Node node = nodeList.item(inx);
+            if (node.getNodeType() == Node.ELEMENT_NODE && node.getNodeName().equals("resultMap")) {
+                ResultMap resultMap = new ResultMap((Element) node);
+                if (resultMaps.putIfAbsent(resultMap.getId(), resultMap) != null)
+                    throw new InvalidMapperElementException(String.format("Duplicate resultMap id[%s] was found.", resultMap.getId()));
+            }
+        }
+
         for (int inx = 0; inx < nodeList.getLength(); inx++) {
             Node node = nodeList.item(inx);
 
-            if (node.getNodeType() == Node.ELEMENT_NODE) { // <mapper>는 자식으로 text는 모두 무시하고 <select>, <insert>, <update>, <delete> 만 인정.
+            if (node.getNodeType() == Node.ELEMENT_NODE) { // <mapper>는 자식으로 text는 모두 무시하고 <cache>, <resultMap>, <select>, <insert>, <update>, <delete>, <pipeline> 만 인정.
                 Element element = (Element) node;
                 String nodeName = element.getNodeName();
 
                 switch (nodeName) {
-                    case "select" -> queryList.add(new Select(element));
+                    case "cache" -> cache = new Cache(element);
+                    case "resultMap" -> {} // 이미 분석되었다.
+                    case "select" -> queryList.add(new Select(element, resultMaps));
                     case "insert" -> queryList.add(new Insert(element));
                     case "update" -> queryList.add(new Update(element));
                     case "delete" -> queryList.add(new Delete(element));
+                    case "pipeline" -> queryList.add(new Pipeline(element, resultMaps));
                     default -> log.warn("Invalid mapper element(<{}>) was found.", nodeName);
                 }
             }
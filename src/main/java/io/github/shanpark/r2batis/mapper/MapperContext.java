@@ -4,114 +4,265 @@ import io.github.shanpark.r2batis.core.MethodImpl;
 import io.github.shanpark.r2batis.exception.InvalidMapperElementException;
 import io.github.shanpark.r2batis.util.ReflectionUtils;
 import io.github.shanpark.r2batis.util.TypeUtils;
-import lombok.Data;
-import lombok.RequiredArgsConstructor;
 import ognl.Ognl;
+import ognl.OgnlContext;
 import ognl.OgnlException;
 
 import java.util.*;
 
 /**
- * Mapper 인터페이스의 Method 호출이 발생하면 새로 생성되어 최종적인 SQL이 생성되는 과정에서
- * 사용되는 Context 객체이다.
+ * Mapper 인터페이스의 Method 호출이 발생하면 최종적인 SQL이 생성되는 과정에서 사용되는 Context 객체이다.
+ * 호출 마다 생성하지 않고 thread 별로 하나를 만들어두고 reset 해서 재사용한다.
+ * 로컬 변수와 branch는 배열로 된 stack에 저장되므로 foreach의 요소 마다 객체나 Map을 생성하지 않는다.
+ * 사용이 끝나면 반드시 close()를 호출해야 하며 thread 간에 공유되어서는 안된다.
  */
-@Data
-public class MapperContext {
+public class MapperContext implements AutoCloseable {
 
-    static class Branch {
-        /**
-         * Node에서 로컬 변수의 이름을 Unique하게 변경해야할 때 사용한다.
-         * uniqueId 를 사용해서 최종 place를 만들 때는 전체 branch를 대상으로도 unique해야 한다.
-         * 현제는 중첩 foreach를 위해서만 사용되고 있다.
-         */
-        private final String uniqueId;
-
-        /**
-         * 생성된 sql에 사용된 모든 placeholder 들을 모아 놓은 map.
-         */
-        private final Map<String, Class<?>> placeholderMap = new HashMap<>();
-
-        /**
-         * 최종 sql 생성 시 bind할 실제 값을 ognl을 이용해서 뽑아낼 때 필요한 객체들을 모아놓은 map.
-         */
-        private final Map<String, Object> paramMap = new HashMap<>();
+    private static final int INITIAL_CAPACITY = 8;
 
-        Branch(String uniqueId) {
-            this.uniqueId = uniqueId;
-        }
-    }
+    // 이보다 많은 placeholder를 사용한 context는 재사용하지 않는다. 큰 foreach 한 번 때문에 큰 Map이 계속 남아있지 않도록 한다.
+    private static final int MAX_REUSE_PLACEHOLDERS = 1024;
 
-    @RequiredArgsConstructor
-    static class VarInfo {
-        private final MethodImpl.ParamInfo paraminfo;
-        private final Object value;
-    }
+    private static final ThreadLocal<MapperContext> CACHED_CONTEXT = ThreadLocal.withInitial(MapperContext::new);
 
     /**
-     * MapperContext를 하나 생성해서 반환한다.
-     * Method 호출 시 최초 MapperContext를 생성할 때 사용된다.
+     * MapperContext를 초기화해서 반환한다.
+     * Method 호출 시 최초 MapperContext를 얻을 때 사용된다. 현재 thread의 context가 사용 중이면 새로 생성한다.
      *
      * @param paramInfos Method의 parameter 정보 구조체를 담은 array 객체.
      * @param args Method 호출 시 전달된 실제 argument 들을 담은 array 객체.
-     * @return 생성된 MapperContext 객체.
+     * @return 초기화된 MapperContext 객체.
      */
     public static MapperContext of(MethodImpl.ParamInfo[] paramInfos, Object[] args) {
-        return new MapperContext(paramInfos, args);
+        MapperContext mapperContext = CACHED_CONTEXT.get();
+        if (mapperContext.inUse)
+            mapperContext = new MapperContext(); // 재진입한 경우. 사용 중인 context를 건드리지 않는다.
+        mapperContext.reset(paramInfos, args);
+        return mapperContext;
     }
 
+    private boolean inUse = false;
+
     /**
-     * mapper의 method 호출 시 전달된 arguments 저장.
+     * mapper의 method 호출 시 전달된 arguments 정보와 값.
      * 전역변수처럼 Query의 어디서나 접근 가능하다.
      */
-    private final List<VarInfo> methodArgs;
+    private MethodImpl.ParamInfo[] paramInfos;
+    private Object[] args;
 
     /**
-     * foreach의 item 처럼 local에서 생성되는 변수들 저장.
-     * 해당 요소의 내부에서만 접근 가능한 변수들이 저장된다.
+     * foreach의 item 처럼 local에서 생성되는 변수들의 stack.
+     * 해당 요소의 내부에서만 접근 가능한 변수들이 저장된다. 같은 index의 요소들이 하나의 변수를 이룬다.
      */
-    private final List<VarInfo> localVars;
+    private String[] localNames = new String[INITIAL_CAPACITY];
+    private Class<?>[] localTypes = new Class<?>[INITIAL_CAPACITY];
+    private Object[] localValues = new Object[INITIAL_CAPACITY];
+    private String[] localSlotNames = new String[INITIAL_CAPACITY]; // 로컬 변수를 참조하는 placeholder가 SQL에서 사용할 고유한 이름.
+    private int localCount = 0;
 
-    private final Stack<Branch> branchStack = new Stack<>();
+    /**
+     * branch 별 uniqueId의 stack. foreach의 요소 마다 branch가 생성된다.
+     * 0번은 최상위 branch로 항상 ""이다.
+     */
+    private String[] branchIds = new String[INITIAL_CAPACITY];
+    private int branchDepth = 0;
 
-    private MapperContext(MethodImpl.ParamInfo[] paramInfos, Object[] args) {
-        methodArgs = new ArrayList<>();
-        localVars = new ArrayList<>();
-        branchStack.push(new Branch(""));
+    /**
+     * test 조건 평가 시 root로 사용되는 map. method argument와 placeholder가 참조하는 root 객체들이 저장된다.
+     * 로컬 변수는 저장되지 않으며 getParamMap()이 반환하는 view에서 함께 조회된다.
+     */
+    private final Map<String, Object> paramMap = new HashMap<>();
 
-        // paramInfos 와 args는 항상 갯수가 같아야한다.
-        Branch curBranch = branchStack.peek();
-        for (int inx = 0; inx < paramInfos.length; inx++) {
-            methodArgs.add(new VarInfo(paramInfos[inx], args[inx]));
-            curBranch.paramMap.put(paramInfos[inx].getName(), args[inx]); // test 조건 같은 곳에서만 사용되는 것들이 placeholder로 검출되지 않기 기본적으로 Method의 argument는 모두 paramMap에 추가되어야 한다.
+    /**
+     * 생성된 sql에 사용된 모든 placeholder 들을 모아 놓은 map.
+     * foreach 의 로컬 변수를 참조하는 placeholder는 고유한 이름으로 바뀌어 저장되므로 branch 별로 나눌 필요가 없다.
+     * 재사용 시 clear() 후에도 table 크기는 유지되므로 순회 비용이 table 크기가 아닌 요소 갯수에 비례하도록 LinkedHashMap을 사용한다.
+     */
+    private final Map<String, Class<?>> placeholderMap = new LinkedHashMap<>();
+
+    /**
+     * 로컬 변수를 참조하는 placeholder 들에 bind 할 값들. placeholder를 등록하는 시점에 값을 읽어서 저장해둔다.
+     */
+    private final Map<String, Object> localBindValueMap = new HashMap<>();
+
+    /**
+     * getParamMap()이 반환하는 view. context와 함께 재사용된다.
+     */
+    private final Scope scope = new Scope();
+
+    /**
+     * If의 test 표현식을 평가할 때 사용하는 OgnlContext. 평가할 때 마다 생성하지 않도록 context와 함께 재사용된다.
+     * 처음 필요할 때 생성된다.
+     */
+    private OgnlContext ognlContext;
+
+    /**
+     * 로컬 변수 stack과 paramMap을 겹쳐서 보여주는 읽기 전용 Map.
+     * 로컬 변수가 paramMap의 같은 이름을 가리고 뒤에 추가된 로컬 변수가 앞의 것을 가린다.
+     */
+    private final class Scope extends AbstractMap<String, Object> {
+        @Override
+        public Object get(Object key) {
+            if (key instanceof String name) {
+                int localIndex = findLocalVar(name);
+                if (localIndex >= 0)
+                    return localValues[localIndex];
+            }
+            return paramMap.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return ((key instanceof String name) && findLocalVar(name) >= 0) || paramMap.containsKey(key);
+        }
+
+        /**
+         * 전체를 순회할 때만 합쳐진 Map을 새로 만든다. test 조건 평가에서는 사용되지 않는다.
+         */
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            Map<String, Object> merged = new LinkedHashMap<>(paramMap);
+            for (int inx = 0; inx < localCount; inx++)
+                merged.put(localNames[inx], localValues[inx]); // 뒤에 있는 로컬 변수가 우선 순위가 높다.
+            return Collections.unmodifiableMap(merged).entrySet();
         }
     }
 
-    public void pushLocalVar(String name, Class<?> clazz, Object value) {
-        localVars.add(new VarInfo(new MethodImpl.ParamInfo(name, clazz), value));
-        branchStack.peek().paramMap.put(name, value);
+    private MapperContext() {
+        branchIds[0] = "";
+    }
+
+    private void reset(MethodImpl.ParamInfo[] paramInfos, Object[] args) {
+        inUse = true;
+        this.paramInfos = paramInfos;
+        this.args = args;
+        localCount = 0;
+        branchDepth = 0;
+
+        // paramInfos 와 args는 항상 갯수가 같아야한다.
+        for (int inx = 0; inx < paramInfos.length; inx++)
+            paramMap.put(paramInfos[inx].getName(), args[inx]); // test 조건 같은 곳에서만 사용되는 것들이 placeholder로 검출되지 않기 기본적으로 Method의 argument는 모두 paramMap에 추가되어야 한다.
+    }
+
+    /**
+     * 사용이 끝난 context를 정리해서 현재 thread에서 재사용할 수 있도록 한다.
+     * getBindSet() 등이 반환한 객체들도 더 이상 사용하면 안된다.
+     */
+    @Override
+    public void close() {
+        boolean reusable = placeholderMap.size() <= MAX_REUSE_PLACEHOLDERS && localValues.length <= MAX_REUSE_PLACEHOLDERS;
+        paramInfos = null;
+        args = null;
+        Arrays.fill(localValues, 0, localCount, null); // 값 객체들이 계속 참조되지 않도록 한다.
+        localCount = 0;
+        paramMap.clear();
+        placeholderMap.clear();
+        localBindValueMap.clear();
+        if (ognlContext != null)
+            ognlContext.clear(); // 평가 중에 설정된 값들이 남아있지 않도록 한다.
+        inUse = false;
+
+        if (!reusable && CACHED_CONTEXT.get() == this)
+            CACHED_CONTEXT.remove();
+    }
+
+    /**
+     * 로컬 변수를 추가한다.
+     *
+     * @param name 로컬 변수 이름.
+     * @param clazz 로컬 변수 값의 타입.
+     * @param value 로컬 변수 값.
+     * @param slotName 이 로컬 변수를 참조하는 placeholder가 SQL에서 대신 사용할 고유한 이름.
+     */
+    public void pushLocalVar(String name, Class<?> clazz, Object value, String slotName) {
+        if (localCount == localNames.length) {
+            int newLength = localNames.length * 2;
+            localNames = Arrays.copyOf(localNames, newLength);
+            localTypes = Arrays.copyOf(localTypes, newLength);
+            localValues = Arrays.copyOf(localValues, newLength);
+            localSlotNames = Arrays.copyOf(localSlotNames, newLength);
+        }
+        localNames[localCount] = name;
+        localTypes[localCount] = clazz;
+        localValues[localCount] = value;
+        localSlotNames[localCount] = slotName;
+        localCount++;
     }
 
     public void popLocalVar() {
-        VarInfo varInfo = localVars.remove(localVars.size() - 1);
-        branchStack.peek().paramMap.remove(varInfo.paraminfo.getName());
+        localCount--;
+        localValues[localCount] = null;
     }
 
     /**
      * 검색된 placeholder를 추가한다. 정규식을 사용하여 placeholder를 검색하고 있으며 정규식에는 공백문자를 포함하고 있지 않다.
      * 따라서 placeholder는 절대로 공백문자를 포함하지 않기 때문에 공백문자는 고려할 필요가 없다.
+     * placeholder가 foreach 의 item, index 같은 로컬 변수를 참조하면 로컬 변수의 고유한 이름으로 바꿔서 등록하고
+     * bind 할 값도 지금 읽어서 저장해둔다. 호출한 쪽은 반환된 이름으로 SQL을 생성해야 한다.
      *
      * @param placeholder 추가할 placeholder 문자열. placeholder 정규식에 매칭된 문자열이므로 절대로 공백문자는 없다.
+     * @return SQL에 사용할 placeholder 이름. 로컬 변수를 참조하지 않으면 전달된 placeholder 그대로이다.
      */
-    public void addPlaceholder(String placeholder) {
-        Branch curBranch = branchStack.peek();
-        if (!curBranch.placeholderMap.containsKey(placeholder)) {
+    public String addPlaceholder(String placeholder) {
+        int dotIndex = placeholder.indexOf('.');
+        String field0 = dotIndex < 0 ? placeholder : placeholder.substring(0, dotIndex);
+
+        int localIndex = findLocalVar(field0);
+        if (localIndex >= 0) {
+            String slot = dotIndex < 0 ? localSlotNames[localIndex] : localSlotNames[localIndex] + placeholder.substring(dotIndex);
+            if (!placeholderMap.containsKey(slot)) {
+                if (dotIndex < 0) { // 하위 필드가 없으면 split 할 필요도 없다.
+                    placeholderMap.put(slot, localTypes[localIndex]);
+                    localBindValueMap.put(slot, localValues[localIndex]);
+                } else {
+                    String[] fields = placeholder.split("\\.");
+                    placeholderMap.put(slot, ReflectionUtils.getFieldType(localTypes[localIndex], fields, 1));
+                    localBindValueMap.put(slot, ReflectionUtils.getFieldValue(localValues[localIndex], fields, 1));
+                }
+            }
+            return slot;
+        }
+
+        if (!placeholderMap.containsKey(placeholder)) {
             String[] fields = placeholder.split("\\.");
             Class<?> type = getTypeByFullFields(fields); // 하위 필드까지 탐색해서 해당 값의 타입을 가져온다.
-            curBranch.placeholderMap.put(placeholder, type);
+            placeholderMap.put(placeholder, type);
+
+            if (!paramMap.containsKey(fields[0])) // 아직 paramMap에 없다면 추가해준다. getVarByField0() 함수가 비용이 비싸기 때문에..
+                paramMap.put(fields[0], getVarByField0(fields[0])); // paramMap에는 하위 필드값이 아닌 root 객체를 저장한다. ognl 로 읽어올 때 사용하기 때문이다.
+        }
+        return placeholder;
+    }
 
-            if (!curBranch.paramMap.containsKey(fields[0])) // 아직 paramMap에 없다면 추가해준다. getVarByField0() 함수가 비용이 비싸기 때문에..
-                curBranch.paramMap.put(fields[0], getVarByField0(fields[0])); // paramMap에는 하위 필드값이 아닌 root 객체를 저장한다. ognl 로 읽어올 때 사용하기 때문이다.
+    /**
+     * 현재 유효한 로컬 변수 중에서 이름이 name 인 것을 찾는다.
+     * localVars는 스택과 같다. 뒤에 추가된 변수가 우선순위가 더 높으므로 뒤에서부터 검색한다.
+     *
+     * @return 찾은 로컬 변수의 stack 상의 index. 없으면 -1.
+     */
+    private int findLocalVar(String name) {
+        for (int inx = localCount - 1; inx >= 0; inx--) {
+            if (name.equals(localNames[inx]))
+                return inx;
+        }
+        return -1;
+    }
+
+    /**
+     * 이름이 name 인 method argument의 index를 찾는다.
+     *
+     * @return 찾은 argument의 index. 없으면 -1.
+     */
+    private int findMethodArg(String name) {
+        for (int inx = 0; inx < paramInfos.length; inx++) {
+            if (name.equals(paramInfos[inx].getName()))
+                return inx;
         }
+        return -1;
+    }
+
+    public int getMethodArgCount() {
+        return paramInfos.length;
     }
 
     /**
@@ -121,45 +272,48 @@ public class MapperContext {
      * branch를 생성해준다.
      */
     public void newBranch(String uniqueId) {
-        branchStack.push(new Branch(branchStack.peek().uniqueId + uniqueId)); // 새로 생성되는 branch는 이전 branch의 uniqueId에 계속 덧붙여서 uniqueId를 생성한다.
+        if (branchDepth + 1 == branchIds.length)
+            branchIds = Arrays.copyOf(branchIds, branchIds.length * 2);
+        branchIds[branchDepth + 1] = branchIds[branchDepth] + uniqueId; // 새로 생성되는 branch는 이전 branch의 uniqueId에 계속 덧붙여서 uniqueId를 생성한다.
+        branchDepth++;
     }
 
     /**
-     * 새롬게 생성된 로컬에서 사용되는 변수들은 모두 최종 sql을 생성하고 bind할 때 사용되어야 하기 때문에 새로운 이름을 부여받고
-     * 모두 branch의 placeholder와 paramMap에 저장되어 있는 상태이다. 이것들을 모두 이전 branch와 합쳐서 유지를 시켜줘야
-     * 최종 sql 생성 시에 bind 할 수 있으므로 foreach의 처리가 끝나면 항상 호출해서 현재 branch와 이전 branch를 합쳐주고
-     * 현재 branch를 pop 시켜주어야 한다.
+     * foreach의 처리가 끝나면 항상 호출해서 현재 branch를 pop 시켜주어야 한다.
+     * 로컬 변수를 참조하는 placeholder 들은 등록될 때 이미 고유한 이름으로 바뀌어 공통 placeholderMap에 저장되고
+     * root 객체들도 공통 paramMap에 저장되므로 따로 합쳐줄 것은 없다.
      */
     public void mergeBranch() {
-        Branch lastBranch = branchStack.pop();
-        Branch curBranch = branchStack.peek();
-
-        // local 변수용 branch는 foreach 에서만 생성되는데 모든 foreach 노드는 각자의 고유한 uid를 갖고 있고
-        // 새로 생성되는 placeholder는 이 uid 값을 포함하므로 절대로 이전 branch와 같은 이름의 변수는 생성될 수 없다.
-        // 따라서 merge할 때 이전 branch와 이름 중복은 걱정할 필요 없이 모두 put하면 된다.
-        curBranch.placeholderMap.putAll(lastBranch.placeholderMap);
-        curBranch.paramMap.putAll(lastBranch.paramMap);
+        branchIds[branchDepth--] = null;
     }
 
     public String getUniqueId() {
-        return branchStack.peek().uniqueId;
+        return branchIds[branchDepth];
     }
 
     /**
-     * 현재 모든 branch에서 유효한 paramMap 들을 모두 모아서 반환한다.
-     * sql을 실행하기 직전에 placeholder에 대응되는 실제 parameter 값을 생성된 sql에 bind할 때와 If에서 test문 검사할 때 사용되는데
-     * test 조건을 검사할 때만 branch가 여러 개일 수 있고 그 경우에만 새로운 map이 생성돼서 반환된다.
+     * 현재 유효한 변수들을 모두 볼 수 있는 Map을 반환한다. If에서 test문 검사할 때 OGNL의 root로 사용된다.
+     * 값을 복사해서 합치지 않고 조회할 때마다 로컬 변수 stack을 위에서부터 찾고 없으면 paramMap에서 찾는 view 이다.
+     * 따라서 foreach 안의 If가 여러 번 평가되어도 Map이 생성되지 않으며 조회 비용은 로컬 변수의 깊이에 비례한다.
      *
-     * @return 모든 branch의 paramMap들의 값들을 하나의 Map으로 만들어서 반환.
+     * @return paramMap과 현재 유효한 로컬 변수들을 보여주는 읽기 전용 Map. context가 재사용되는 동안 같은 객체이다.
      */
     public Map<String, Object> getParamMap() {
-        if (branchStack.size() == 1) {
-            return branchStack.peek().paramMap; // branch가 하나밖에 없으면 따로 합치는 작업은 필요없다.
-        } else {
-            Map<String, Object> newParamMap = new HashMap<>();
-            branchStack.forEach(branch -> newParamMap.putAll(branch.paramMap)); // 뒤에 있는 paramMap이 우선 순위가 높다.
-            return newParamMap;
-        }
+        return scope;
+    }
+
+    /**
+     * getParamMap()이 반환하는 Map을 root로 하는 OgnlContext를 반환한다.
+     * 하나의 객체를 재사용하며 이전 평가에서 바뀐 상태가 남지 않도록 반환하기 전에 root를 다시 설정한다.
+     *
+     * @return root가 설정된 OgnlContext 객체. 다음 호출 전까지만 사용해야 한다.
+     */
+    OgnlContext getOgnlContext() {
+        if (ognlContext == null)
+            ognlContext = (OgnlContext) Ognl.createDefaultContext(scope);
+        else
+            ognlContext.setRoot(scope);
+        return ognlContext;
     }
 
     /**
@@ -170,8 +324,7 @@ public class MapperContext {
      * @return bind가 필요한 placeholder 들의 set
      */
     public Set<String> getBindSet() {
-        // 항상 generation이 끝난 후에 호출되므로 branchStack에는 1건만 있어야 한다.
-        return branchStack.peek().placeholderMap.keySet();
+        return placeholderMap.keySet();
     }
 
     /**
@@ -183,38 +336,21 @@ public class MapperContext {
      * @return 조회된 placeholder의 타입. Class 객체이다.
      */
     public Class<?> getPlaceholderType(String placeholder) {
-        // 항상 generation이 끝난 후에 호출되므로 branchStack에는 1건만 있어야 한다.
-        return branchStack.peek().placeholderMap.get(placeholder);
+        return placeholderMap.get(placeholder);
     }
 
     /**
-     * foreach의 item, index 속성으로 지정된 placeholder를 새로 부연된 이름으로 변경할 때 사용된다.
-     * item, index 속성에는 당연히 multi depth의 이름이 지정될 수 없으므로 placeholder와 newPlaceholder는
-     * 하나의 field로 이루어진 값이라고 할 수 있다.
+     * bind할 placeholder의 값을 반환한다.
+     * 로컬 변수를 참조하는 placeholder는 등록할 때 저장해둔 값을 반환하고 그 외에는 method argument에서 찾아서 반환한다.
+     * sql을 실행하기 직전에 bind를 수행하기 때문에 SQL 생성은 이미 끝난 상태에서만 호출되어야 한다.
      *
-     * @param placeholder 변경 대상이 되는 placeholder 이름.
-     * @param newPlaceholder placeholder로 지정된 값의 새로운 이름. 이 이름으로 변경된다.
+     * @param placeholder 값을 조회할 placeholder.
+     * @return placeholder에 bind 할 값. null일 수 있다.
      */
-    public void expandPlaceholder(String placeholder, String newPlaceholder) {
-        Branch curBranch = branchStack.peek(); // 현재 작업 branch에서만 expand 해야 한다.
-
-        // 기존에 placeholderMap에서 placeholder라는 이름으로 생성된 것들을 newPlaceholder로 변경한다.
-        Map<String, Class<?>> newPlaceholderMap = new HashMap<>();
-        Iterator<Map.Entry<String, Class<?>>> it = curBranch.placeholderMap.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry<String, Class<?>> entry = it.next();
-            String key = entry.getKey();
-
-            // 사용된 placeholder를 newplaceholder로 바꾼다.
-            if (key.equals(placeholder) || key.startsWith(placeholder + ".")) {
-                newPlaceholderMap.put(newPlaceholder + key.substring(placeholder.length()), entry.getValue());
-                it.remove();
-            }
-        }
-        curBranch.placeholderMap.putAll(newPlaceholderMap);
-
-        Object value = curBranch.paramMap.remove(placeholder); // placeholder는 paramMap이 반드시 있어야 하고 그 값이 null일 수는 있다.
-        curBranch.paramMap.put(newPlaceholder, value);         // 따라서 null 여부에 상관없이 항상 put해줘야 한다.
+    public Object getBindValue(String placeholder) {
+        if (localBindValueMap.containsKey(placeholder))
+            return localBindValueMap.get(placeholder);
+        return getVarByFullFields(placeholder);
     }
 
     /**
@@ -226,27 +362,18 @@ public class MapperContext {
      * @return 검색 후 찾은 값 객체
      */
     public Object getVarByField0(String field0) {
-        // localVars는 스택과 같다. 뒤에 추가된 변수가 우선순위가 더 높으므로 뒤에서부터 검색한다.
-        VarInfo varInfo = null;
-        for (int inx = localVars.size() - 1; inx >= 0; inx--) { // 뒤에 붙은 param들이 우선순위가 더 높기때문에 반드시 뒤에서부터 검색.
-            VarInfo localVar = localVars.get(inx);
-            if (field0.equals(localVar.paraminfo.getName())) {
-                varInfo = localVar;
-                break;
-            }
-        }
-
-        if (varInfo != null) { // localVars에서 찾았다.
-            return varInfo.value;
+        int localIndex = findLocalVar(field0);
+        if (localIndex >= 0) { // localVars에서 찾았다.
+            return localValues[localIndex];
         } else { // localVars에 없으면 methodArgs에서 찾는다.
-            Optional<VarInfo> methodArg = methodArgs.stream().filter(pair -> field0.equals(pair.paraminfo.getName())).findFirst();
-            if (methodArg.isPresent()) {
-                return methodArg.get().value;
+            int argIndex = findMethodArg(field0);
+            if (argIndex >= 0) {
+                return args[argIndex];
             } else { // methodArgs 에서도 없으면
-                if (methodArgs.size() == 1) { // 맞는 parameter를 못찾았지만 최초 argument가 1개인 경우
-                    if (!TypeUtils.supports(methodArgs.get(0).paraminfo.getType())) { // 지원하는 primitive 타입이 아니라면 그 parameter각 POJO 객체라고 보고 그 객체의 field 중에서 찾는다.
+                if (paramInfos.length == 1) { // 맞는 parameter를 못찾았지만 최초 argument가 1개인 경우
+                    if (!TypeUtils.supports(paramInfos[0].getType())) { // 지원하는 primitive 타입이 아니라면 그 parameter각 POJO 객체라고 보고 그 객체의 field 중에서 찾는다.
                         try {
-                            return Ognl.getValue(field0, methodArgs.get(0).value);
+                            return Ognl.getValue(field0, args[0]);
                         } catch (OgnlException e) {
                             throw new InvalidMapperElementException(String.format("Can't bind ':%s' parameter.", field0), e);
                         }
@@ -289,26 +416,17 @@ public class MapperContext {
      */
     public Class<?> getTypeByFullFields(String[] fields) {
         // localVars는 스택과 같다. 뒤에 추가된 변수가 우선순위가 더 높으므로 뒤에서부터 검색한다.
-        MethodImpl.ParamInfo paramInfo = null;
-        for (int inx = localVars.size() - 1; inx >= 0; inx--) { // 뒤에 붙은 param들이 우선순위가 더 높기때문에 반드시 뒤에서부터 검색.
-            VarInfo localVar = localVars.get(inx);
-            if (fields[0].equals(localVar.paraminfo.getName())) {
-                paramInfo = localVar.paraminfo;
-                break;
-            }
-        }
-
-        if (paramInfo != null) { // localVars에서 찾았다.
-            return ReflectionUtils.getFieldType(paramInfo.getType(), fields, 1);
+        int localIndex = findLocalVar(fields[0]);
+        if (localIndex >= 0) { // localVars에서 찾았다.
+            return ReflectionUtils.getFieldType(localTypes[localIndex], fields, 1);
         } else { // localVars에 없으면 methodArgs에서 찾는다.
-            Optional<VarInfo> methodArg = methodArgs.stream().filter(varInfo -> fields[0].equals(varInfo.paraminfo.getName())).findFirst();
-            if (methodArg.isPresent()) {
-                paramInfo = methodArg.get().paraminfo;
-                return ReflectionUtils.getFieldType(paramInfo.getType(), fields, 1);
+            int argIndex = findMethodArg(fields[0]);
+            if (argIndex >= 0) {
+                return ReflectionUtils.getFieldType(paramInfos[argIndex].getType(), fields, 1);
             } else { // methodArgs 에서도 없으면
-                if (methodArgs.size() == 1) { // 맞는 parameter를 못찾았지만 최초 argument가 1개인 경우
-                    if (!TypeUtils.supports(methodArgs.get(0).paraminfo.getType())) { // 지원하는 primitive 타입이 아니라면 그 parameter각 POJO 객체라고 보고 그 객체의 field 중에서 찾는다.
-                        return ReflectionUtils.getFieldType(methodArgs.get(0).paraminfo.getType(), fields, 0);
+                if (paramInfos.length == 1) { // 맞는 parameter를 못찾았지만 최초 argument가 1개인 경우
+                    if (!TypeUtils.supports(paramInfos[0].getType())) { // 지원하는 primitive 타입이 아니라면 그 parameter각 POJO 객체라고 보고 그 객체의 field 중에서 찾는다.
+                        return ReflectionUtils.getFieldType(paramInfos[0].getType(), fields, 0);
                     }
                 }
                 // 여기까지 왔으면 맞는 해당하는 argument 나 localVar가 없다는 뜻이다. 인터페이스 선언이나 xml mapper 선언에서 이름이 틀린 것이다.
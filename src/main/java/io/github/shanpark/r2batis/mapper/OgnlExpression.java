@@ -0,0 +1,76 @@
+package io.github.shanpark.r2batis.mapper;
+
+import io.github.shanpark.r2batis.exception.InvalidMapperElementException;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import ognl.ExpressionAccessor;
+import ognl.Node;
+import ognl.Ognl;
+import ognl.OgnlContext;
+import ognl.OgnlException;
+
+/**
+ * parse 된 상태로 보관되는 OGNL 표현식.
+ * 매번 문자열을 다시 parse 하지 않도록 노드 생성 시점에 한 번만 parse 해둔다.
+ * 처음 평가할 때 OGNL의 expression compiler로 bytecode 컴파일을 시도하고
+ * 컴파일이나 컴파일된 코드의 실행이 실패하면 그 이후로는 항상 parse 된 tree를 해석해서 평가한다.
+ */
+@Slf4j
+public final class OgnlExpression {
+
+    @Getter
+    private final String expression;
+    private final Object tree;
+
+    private volatile boolean compileTried = false;
+    private volatile ExpressionAccessor accessor; // 컴파일에 성공하면 설정된다.
+
+    public OgnlExpression(String expression) {
+        this.expression = expression;
+        try {
+            tree = Ognl.parseExpression(expression);
+        } catch (OgnlException e) {
+            throw new InvalidMapperElementException(String.format("The expression provided is invalid. [%s]", expression), e);
+        }
+    }
+
+    /**
+     * mapperContext의 현재 변수들(getParamMap())을 root로 표현식을 평가한다.
+     * OgnlContext는 평가 마다 생성하지 않고 mapperContext가 갖고 있는 것을 재사용한다.
+     *
+     * @param mapperContext 표현식을 평가할 MapperContext 객체.
+     * @return 평가 결과 값.
+     */
+    public Object getValue(MapperContext mapperContext) throws OgnlException {
+        Object root = mapperContext.getParamMap();
+        if (!compileTried)
+            compile(root);
+
+        OgnlContext context = mapperContext.getOgnlContext();
+        ExpressionAccessor compiled = accessor;
+        if (compiled != null) {
+            try {
+                return compiled.get(context, root);
+            } catch (RuntimeException e) {
+                // 컴파일은 처음 평가할 때의 root를 기준으로 이루어지므로 이후 값의 타입이 달라지면 실패할 수 있다.
+                // 이 경우 더 이상 컴파일된 코드를 사용하지 않고 해석 방식으로 다시 평가한다.
+                log.debug("The compiled expression failed. It will be interpreted from now on. [{}]", expression, e);
+                accessor = null;
+            }
+        }
+        return Ognl.getValue(tree, mapperContext.getOgnlContext(), root); // 실패한 평가가 바꿔둔 상태가 남지 않도록 root를 다시 설정한다.
+    }
+
+    private synchronized void compile(Object root) {
+        if (compileTried)
+            return;
+
+        try {
+            Node node = Ognl.compileExpression((OgnlContext) Ognl.createDefaultContext(root), root, expression);
+            accessor = node.getAccessor();
+        } catch (Exception | LinkageError e) { // javassist가 없는 경우도 포함해서 컴파일이 안되면 그냥 해석 방식으로 동작한다.
+            log.debug("The expression cannot be compiled. It will be interpreted. [{}]", expression, e);
+        }
+        compileTried = true;
+    }
+}
@@ -6,6 +6,7 @@ import org.w3c.dom.NodeList;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * HTML에서 <div> 처럼 SQL 구문들을 그저 block으로 묶어주는 역할말고는 없다.
@@ -36,4 +37,10 @@ public final class Otherwise extends SqlNode {
             sb.append(sqlNode.generateSql(mapperContext)).append(" "); // 하위 노드가 생성한 sql뒤에 항상 공백을 붙인다.
         return sb.toString().trim(); // 마지막엔 항상 trim()
     }
+
+    @Override
+    public void collectPlaceholders(Set<String> placeholders) {
+        for (SqlNode sqlNode : sqlNodes)
+            sqlNode.collectPlaceholders(placeholders);
+    }
 }
@@ -0,0 +1,91 @@
+package io.github.shanpark.r2batis.mapper;
+
+import io.github.shanpark.r2batis.exception.InvalidMapperElementException;
+import lombok.Getter;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@code <pipeline>} 요소. 하나의 mapper 메소드에서 서로 독립적인 여러 SQL 문을 하나의 connection으로 한 번에 실행한다.
+ * 자식 요소로 {@code <select>}, {@code <insert>}, {@code <update>}, {@code <delete>}를 가지며 각 자식 요소의 id가
+ * resultType 객체에서 그 실행 결과가 설정될 필드 이름이 된다.
+ * resultType이 지정되지 않으면 자식 요소 순서대로 실행 결과를 담은 List가 반환된다.
+ *
+ * {@code <select>}의 결과는 resultType의 필드가 Collection 타입이면 모든 행의 List, 아니면 첫 행(없으면 null)이 설정된다.
+ * 나머지 요소들의 결과는 영향 받은 행의 갯수이다.
+ *
+ * 모든 SQL 문에 bind 할 값이 없을 때만 R2DBC Batch로 DB와 한 번에 주고 받는다.
+ * bind 할 값이 있으면 SQL 문들은 같은 connection에서 차례로 실행되며 SQL 문 마다 DB와 한 번씩 주고 받는다.
+ */
+@Getter
+public final class Pipeline extends Query {
+
+    private final List<Query> statements;
+
+    /**
+     * statements 와 같은 순서로 resultType의 필드가 Collection 타입인지를 갖는다. resultType이 없으면 모두 true 이다.
+     */
+    private final boolean[] collectionResults;
+
+    public Pipeline(Element element, Map<String, ResultMap> resultMaps) {
+        super(element);
+
+        if (isBatch())
+            throw new InvalidMapperElementException("The 'batch' attribute can only be used in <insert>, <update> and <delete> elements.");
+
+        List<Query> statementList = new ArrayList<>();
+        Set<String> ids = new HashSet<>();
+        NodeList nodeList = element.getChildNodes();
+        for (int inx = 0; inx < nodeList.getLength(); inx++) {
+            Node node = nodeList.item(inx);
+            if (node.getNodeType() != Node.ELEMENT_NODE)
+                continue;
+
+            Element child = (Element) node;
+            Query statement = switch (child.getNodeName()) {
+                case "select" -> new Select(child, resultMaps);
+                case "insert" -> new Insert(child);
+                case "update" -> new Update(child);
+                case "delete" -> new Delete(child);
+                default -> throw new InvalidMapperElementException(String.format("Invalid element(<%s>) was found in <pipeline>. [%s]", child.getNodeName(), getId()));
+            };
+            if (statement.getId().isBlank() || !ids.add(statement.getId()))
+                throw new InvalidMapperElementException("The statements in <pipeline> must have unique 'id' attributes. [" + getId() + "]");
+            if (statement.isBatch() || hasSelectKeys(statement))
+                throw new InvalidMapperElementException("The statements in <pipeline> cannot use 'batch', <selectKey> or 'useGeneratedKeys'. [" + getId() + "]");
+            statementList.add(statement);
+        }
+        if (statementList.isEmpty())
+            throw new InvalidMapperElementException("The <pipeline> element should include at least one statement. [" + getId() + "]");
+        statements = Collections.unmodifiableList(statementList);
+
+        collectionResults = new boolean[statements.size()];
+        for (int inx = 0; inx < collectionResults.length; inx++)
+            collectionResults[inx] = getResultClass() == null || isCollectionField(getResultClass(), statements.get(inx).getId());
+    }
+
+    private static boolean hasSelectKeys(Query statement) {
+        if (statement instanceof Insert insert)
+            return !insert.getSelectKeys().isEmpty() || insert.isUseGeneratedKeys();
+        if (statement instanceof Update update)
+            return !update.getSelectKeys().isEmpty() || update.isUseGeneratedKeys();
+        return false;
+    }
+
+    private static boolean isCollectionField(Class<?> clazz, String fieldName) {
+        try {
+            return Collection.class.isAssignableFrom(clazz.getDeclaredField(fieldName).getType());
+        } catch (NoSuchFieldException e) {
+            throw new InvalidMapperElementException(String.format("The resultType of <pipeline> has no field for the statement '%s'. [%s]", fieldName, clazz.getName()), e);
+        }
+    }
+}
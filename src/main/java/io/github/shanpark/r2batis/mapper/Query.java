@@ -2,10 +2,15 @@ package io.github.shanpark.r2batis.mapper;
 
 import io.github.shanpark.r2batis.exception.InvalidMapperElementException;
 import lombok.Getter;
+import org.springframework.util.ClassUtils;
 import org.w3c.dom.Element;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 @Getter
 public class Query {
@@ -14,20 +19,165 @@ public class Query {
     private final String databaseId;
     private final Class<?> resultClass;
 
+    /**
+     * resultMap 속성으로 지정된 {@code <resultMap>}. {@code <select>}에만 지정할 수 있으며 지정되지 않으면 null 이다.
+     * 지정되면 resultClass는 {@code <resultMap>}의 type 이다.
+     */
+    private final ResultMap resultMap;
+
+    /**
+     * parameterTypes 속성 값. 같은 이름으로 overload 된 메소드들 중에서 parameter 타입들이 일치하는 메소드에만 이 Query를 사용한다.
+     * 지정되지 않으면 null 이며 이름이 같은 모든 메소드에 사용된다. (parameterTypes가 지정된 Query가 있는 메소드는 제외)
+     */
+    private final Class<?>[] parameterTypes;
+
+    /**
+     * true 이면 mapper 메소드의 argument로 전달된 Collection 또는 배열의 요소 마다 값을 bind 해서
+     * 하나의 Statement 로 한 번에 실행한다. {@code <insert>}, {@code <update>}, {@code <delete>} 에만 지정할 수 있다.
+     */
+    private final boolean batch;
+
+    /**
+     * useCache, flushCache 속성 값. 지정되지 않으면 null 이며 isUseCache(), isFlushCache()가 기본값을 결정한다.
+     */
+    private final Boolean useCache;
+    private final Boolean flushCache;
+
     protected final List<SqlNode> sqlNodes = new ArrayList<>();
 
+    /**
+     * 동적 요소 없이 Sql 노드로만 이루어진 Query라면 parsing 시점에 미리 생성해둔 SQL 문.
+     * 동적 요소가 하나라도 있으면 null 이다.
+     */
+    private String staticSql;
+
+    /**
+     * staticSql 에서 사용된 placeholder 들의 목록. staticSql 이 null 이면 이 값도 null 이다.
+     */
+    private List<String> staticPlaceholders;
+
     public Query(Element element) {
+        this(element, null);
+    }
+
+    protected Query(Element element, ResultMap resultMap) {
         id = element.getAttribute("id").trim();
         databaseId = element.getAttribute("databaseId").trim();
+        batch = Boolean.parseBoolean(element.getAttribute("batch").trim());
+        String useCacheStr = element.getAttribute("useCache").trim();
+        useCache = useCacheStr.isBlank() ? null : Boolean.parseBoolean(useCacheStr);
+        String flushCacheStr = element.getAttribute("flushCache").trim();
+        flushCache = flushCacheStr.isBlank() ? null : Boolean.parseBoolean(flushCacheStr);
         String resultType = element.getAttribute("resultType").trim();
-        try {
-            resultClass = !resultType.isBlank() ? Class.forName(resultType) : null;
-        } catch (ClassNotFoundException e) {
-            throw new InvalidMapperElementException(String.format("The specified resultType[%s] is invalid.", resultType), e);
+        this.resultMap = resultMap;
+        if (resultMap != null) {
+            if (!resultType.isBlank())
+                throw new InvalidMapperElementException("The 'resultType' and 'resultMap' attributes cannot be used together. [" + id + "]");
+            resultClass = resultMap.getType();
+        } else {
+            try {
+                resultClass = !resultType.isBlank() ? Class.forName(resultType) : null;
+            } catch (ClassNotFoundException e) {
+                throw new InvalidMapperElementException(String.format("The specified resultType[%s] is invalid.", resultType), e);
+            }
+        }
+        parameterTypes = parseParameterTypes(element.getAttribute("parameterTypes").trim());
+    }
+
+    /**
+     * "java.lang.Long, java.lang.String" 처럼 ','로 구분된 클래스 이름 목록을 Class 배열로 변환한다.
+     * 빈 문자열이면 null, "()" 이면 parameter가 없는 메소드를 뜻하는 빈 배열을 반환한다.
+     */
+    private static Class<?>[] parseParameterTypes(String parameterTypesStr) {
+        if (parameterTypesStr.isBlank())
+            return null;
+        if (parameterTypesStr.equals("()"))
+            return new Class<?>[0];
+
+        String[] typeNames = parameterTypesStr.split("\\s*,\\s*");
+        Class<?>[] types = new Class<?>[typeNames.length];
+        for (int inx = 0; inx < typeNames.length; inx++) {
+            try {
+                types[inx] = ClassUtils.forName(typeNames[inx], null); // primitive 타입과 "java.lang.String[]" 같은 배열 타입도 지원된다.
+            } catch (ClassNotFoundException | LinkageError e) {
+                throw new InvalidMapperElementException(String.format("The specified parameterTypes[%s] is invalid.", parameterTypesStr), e);
+            }
+        }
+        return types;
+    }
+
+    /**
+     * 이 Query를 types 타입의 parameter 들을 갖는 메소드에 사용할 수 있는 지 확인한다.
+     */
+    public boolean matchesParameterTypes(Class<?>[] types) {
+        return parameterTypes == null || Arrays.equals(parameterTypes, types);
+    }
+
+    /**
+     * 하위 클래스의 생성자에서 sqlNodes 구성이 끝난 후 호출해야 한다.
+     * 모든 노드가 Sql 노드라면 호출할 때마다 SQL이 달라질 일이 없으므로 미리 SQL 문과 placeholder 목록을 만들어둔다.
+     */
+    protected void prepareStaticSql() {
+        if (sqlNodes.stream().allMatch(sqlNode -> sqlNode instanceof Sql)) {
+            StringBuilder sb = new StringBuilder();
+            Set<String> placeholders = new LinkedHashSet<>();
+            for (SqlNode sqlNode : sqlNodes) {
+                Sql sql = (Sql) sqlNode;
+                sb.append(sql.getSql()).append(" "); // generateSql()과 같은 모양이 되도록 각 노드 뒤에 공백을 붙인다.
+                placeholders.addAll(sql.getPlaceholderSet());
+            }
+            staticSql = sb.toString();
+            staticPlaceholders = Collections.unmodifiableList(new ArrayList<>(placeholders));
+        } else if (batch) {
+            // batch 실행은 SQL을 한 번만 생성하고 요소 마다 값만 bind 하므로 요소에 따라 SQL이 달라지는 동적 요소는 사용할 수 없다.
+            throw new InvalidMapperElementException("The element with batch=\"true\" cannot contain dynamic elements. [" + id + "]");
         }
     }
 
+    /**
+     * namespace에 {@code <cache>}가 있을 때 이 Query의 결과를 캐슁할 지 여부.
+     * {@code <select>}만 캐슁할 수 있으며 지정되지 않으면 캐슁한다.
+     */
+    public boolean isUseCache() {
+        return (this instanceof Select) && !(this instanceof SelectKey) && (useCache == null || useCache);
+    }
+
+    /**
+     * 이 Query의 실행이 끝나면 namespace의 캐쉬를 비울 지 여부.
+     * 지정되지 않으면 {@code <insert>}, {@code <update>}, {@code <delete>}는 비우고 {@code <select>}는 비우지 않는다.
+     * {@code <pipeline>}은 캐쉬를 비우는 문장을 하나라도 포함할 때만 비운다.
+     */
+    public boolean isFlushCache() {
+        if (flushCache != null)
+            return flushCache;
+        if (this instanceof Pipeline pipeline)
+            return pipeline.getStatements().stream().anyMatch(Query::isFlushCache);
+        return !(this instanceof Select);
+    }
+
+    public boolean isStaticSql() {
+        return staticSql != null;
+    }
+
+    /**
+     * 이 Query의 SQL 문에 직접 사용된 placeholder 들을 모두 수집해서 반환한다.
+     *
+     * @return 수집된 placeholder 들의 Set 객체.
+     */
+    public Set<String> collectPlaceholders() {
+        Set<String> placeholders = new LinkedHashSet<>();
+        for (SqlNode sqlNode : sqlNodes)
+            sqlNode.collectPlaceholders(placeholders);
+        return placeholders;
+    }
+
     public String generateSql(MapperContext mapperContext) {
+        if (staticSql != null) {
+            for (String placeholder : staticPlaceholders)
+                mapperContext.addPlaceholder(placeholder);
+            return staticSql; // 미리 생성해둔 SQL을 그대로 사용한다.
+        }
+
         StringBuilder sb = new StringBuilder();
         for (SqlNode sqlNode : sqlNodes)
             sb.append(sqlNode.generateSql(mapperContext)).append(" ");
@@ -0,0 +1,116 @@
+package io.github.shanpark.r2batis.mapper;
+
+import io.github.shanpark.r2batis.exception.InvalidMapperElementException;
+import lombok.Getter;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@code <resultMap>} 요소. 조인된 결과의 행들을 부모 객체와 {@code <association>}, {@code <collection>}으로 지정된
+ * 하위 객체들의 구조로 묶는 방법을 정의한다.
+ * {@code <association>}, {@code <collection>} 요소도 같은 구조를 가지므로 이 클래스로 표현된다.
+ *
+ * MyBatis와 달리 하위 결과는 요소 안에 직접 정의해야 하며 (다른 resultMap 참조나 nested select는 지원하지 않는다)
+ * 지정되지 않은 컬럼은 자동으로 매핑되지 않는다.
+ */
+@Getter
+public final class ResultMap {
+
+    /**
+     * {@code <id>}, {@code <result>} 요소. column 컬럼의 값이 property 필드에 설정된다.
+     */
+    public record ResultMapping(String property, String column) {}
+
+    private final String id; // <resultMap>의 id. <association>, <collection>은 빈 문자열이다.
+    private final String property; // <association>, <collection>의 property. <resultMap>은 빈 문자열이다.
+    private final Class<?> type; // 생성할 객체의 타입. (<resultMap>의 type, <association>의 javaType, <collection>의 ofType)
+    private final boolean collection; // <collection> 이면 true.
+
+    /**
+     * 같은 객체인지 판단하는 데 사용할 컬럼들. {@code <id>}가 없으면 모든 {@code <result>} 컬럼의 값으로 판단한다.
+     */
+    private final List<ResultMapping> idMappings;
+    private final List<ResultMapping> resultMappings; // <id> 요소들도 포함된다.
+    private final List<ResultMap> associations;
+    private final List<ResultMap> collections;
+
+    public ResultMap(Element element) {
+        this(element, "");
+    }
+
+    /**
+     * @param parentPrefix 상위 요소들의 columnPrefix를 이어붙인 값. 하위 요소의 컬럼 이름 앞에 붙는다.
+     */
+    private ResultMap(Element element, String parentPrefix) {
+        String nodeName = element.getNodeName();
+        collection = nodeName.equals("collection");
+        if (nodeName.equals("resultMap")) {
+            id = element.getAttribute("id").trim();
+            property = "";
+            if (id.isBlank())
+                throw new InvalidMapperElementException("The <resultMap> element must include the 'id' attribute.");
+        } else {
+            id = "";
+            property = element.getAttribute("property").trim();
+            if (property.isBlank())
+                throw new InvalidMapperElementException(String.format("The <%s> element must include the 'property' attribute.", nodeName));
+        }
+
+        String typeAttr = nodeName.equals("resultMap") ? "type" : (collection ? "ofType" : "javaType");
+        String typeName = element.getAttribute(typeAttr).trim();
+        if (typeName.isBlank())
+            throw new InvalidMapperElementException(String.format("The <%s> element must include the '%s' attribute.", nodeName, typeAttr));
+        try {
+            type = Class.forName(typeName);
+        } catch (ClassNotFoundException e) {
+            throw new InvalidMapperElementException(String.format("The specified %s[%s] is invalid.", typeAttr, typeName), e);
+        }
+
+        String prefix = parentPrefix + element.getAttribute("columnPrefix").trim();
+        List<ResultMapping> ids = new ArrayList<>();
+        List<ResultMapping> results = new ArrayList<>();
+        List<ResultMap> associationList = new ArrayList<>();
+        List<ResultMap> collectionList = new ArrayList<>();
+
+        NodeList nodeList = element.getChildNodes();
+        for (int inx = 0; inx < nodeList.getLength(); inx++) {
+            Node node = nodeList.item(inx);
+            if (node.getNodeType() != Node.ELEMENT_NODE)
+                continue;
+
+            Element child = (Element) node;
+            switch (child.getNodeName()) {
+                case "id" -> {
+                    ResultMapping mapping = newResultMapping(child, prefix);
+                    ids.add(mapping);
+                    results.add(mapping);
+                }
+                case "result" -> results.add(newResultMapping(child, prefix));
+                case "association" -> associationList.add(new ResultMap(child, prefix));
+                case "collection" -> collectionList.add(new ResultMap(child, prefix));
+                default -> throw new InvalidMapperElementException(String.format("Invalid element(<%s>) was found in <%s>.", child.getNodeName(), nodeName));
+            }
+        }
+
+        if (results.isEmpty())
+            throw new InvalidMapperElementException(String.format("The <%s> element should include at least one <id> or <result> element.", nodeName));
+
+        idMappings = Collections.unmodifiableList(ids.isEmpty() ? results : ids);
+        resultMappings = Collections.unmodifiableList(results);
+        associations = Collections.unmodifiableList(associationList);
+        collections = Collections.unmodifiableList(collectionList);
+    }
+
+    private static ResultMapping newResultMapping(Element element, String prefix) {
+        String property = element.getAttribute("property").trim();
+        String column = element.getAttribute("column").trim();
+        if (property.isBlank() || column.isBlank())
+            throw new InvalidMapperElementException(String.format("The <%s> element must include the 'property' and 'column' attributes.", element.getNodeName()));
+        return new ResultMapping(property, prefix + column);
+    }
+}
@@ -1,16 +1,49 @@
 package io.github.shanpark.r2batis.mapper;
 
 import io.github.shanpark.r2batis.exception.InvalidMapperElementException;
+import lombok.Getter;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
+import java.util.Map;
+
 public class Select extends Query {
+
+    /**
+     * true 이면 같은 SQL 문과 같은 bind 값으로 동시에 호출된 실행들을 하나의 실행으로 합친다.
+     */
+    @Getter
+    private final boolean coalesce;
+
+    /**
+     * Flux를 반환하는 메소드에서만 사용된다. 0 이면 지정하지 않은 것이다.
+     * fetchSize: DB에서 한 번에 가져올 행의 갯수. driver의 Statement.fetchSize()로 전달된다.
+     * prefetch: 결과 Flux가 upstream에 한 번에 요청할 행의 갯수. limitRate()로 적용된다.
+     */
+    @Getter
+    private final int fetchSize;
+    @Getter
+    private final int prefetch;
+
     public Select(Element element) {
-        super(element);
+        this(element, Map.of());
+    }
+
+    /**
+     * @param resultMaps 같은 mapper xml에 정의된 {@code <resultMap>}들. resultMap 속성 값으로 찾는다.
+     */
+    public Select(Element element, Map<String, ResultMap> resultMaps) {
+        super(element, findResultMap(element, resultMaps));
+
+        coalesce = Boolean.parseBoolean(element.getAttribute("coalesce").trim());
+        fetchSize = parseNonNegative(element, "fetchSize");
+        prefetch = parseNonNegative(element, "prefetch");
 
         if (getResultClass() == null)
-            throw new InvalidMapperElementException("The <select>, <selectKey> element should include the 'resultType' attribute.");
+            throw new InvalidMapperElementException("The <select>, <selectKey> element should include the 'resultType' or 'resultMap' attribute.");
+        if (isBatch())
+            throw new InvalidMapperElementException("The 'batch' attribute can only be used in <insert>, <update> and <delete> elements.");
 
         NodeList nodeList = element.getChildNodes();
         for (int inx = 0; inx < nodeList.getLength(); inx++) {
@@ -24,5 +57,30 @@ public class Select extends Query {
                 sqlNodes.add(SqlNode.newSqlNode((Element) node));
             }
         }
+
+        prepareStaticSql();
+    }
+
+    private static ResultMap findResultMap(Element element, Map<String, ResultMap> resultMaps) {
+        String resultMapId = element.getAttribute("resultMap").trim();
+        if (resultMapId.isBlank())
+            return null;
+
+        ResultMap resultMap = resultMaps.get(resultMapId);
+        if (resultMap == null)
+            throw new InvalidMapperElementException(String.format("The specified resultMap[%s] is not defined.", resultMapId));
+        return resultMap;
+    }
+
+    private static int parseNonNegative(Element element, String name) {
+        String value = element.getAttribute(name).trim();
+        try {
+            int number = value.isBlank() ? 0 : Integer.parseInt(value);
+            if (number < 0)
+                throw new InvalidMapperElementException(String.format("The '%s' attribute should not be negative. [%s]", name, value));
+            return number;
+        } catch (NumberFormatException e) {
+            throw new InvalidMapperElementException(String.format("The '%s' attribute should be a number. [%s]", name, value), e);
+        }
     }
 }
@@ -1,6 +1,8 @@
 package io.github.shanpark.r2batis.mapper;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.regex.Pattern;
 
@@ -10,38 +12,85 @@ public final class Sql extends SqlNode {
     private static final Pattern COLON_IDENTIFIER_PATTERN = Pattern.compile(COLON_IDENTIFIER_REGEX);
 
     private final String sql;
-    private volatile Set<String> placeholderSet;
+    private final String[] segments; // parsing 시점에 미리 나눠둔 일반 문자열 조각과 placeholder 조각. split() 참고.
+    private final Set<String> placeholderSet;
 
     public Sql(String sql) {
         this.sql = sql.trim();
+        this.segments = split(this.sql).toArray(new String[0]);
+
+        Set<String> placeholders = new HashSet<>();
+        for (int inx = 1; inx < segments.length; inx += 2) // 홀수 번째 요소가 placeholder 이다.
+            placeholders.add(segments[inx]);
+        this.placeholderSet = placeholders;
     }
 
+    /**
+     * 미리 나눠둔 조각들을 차례로 붙여서 SQL을 생성한다.
+     * placeholder 조각은 mapperContext에 등록하면서 반환되는 이름으로 붙이므로
+     * foreach 의 item, index 같은 로컬 변수는 SQL 생성과 동시에 고유한 이름으로 바뀐다.
+     */
     @Override
     public String generateSql(MapperContext mapperContext) {
-        if (!sql.isBlank()) {
-            for (String placeholder : getPlaceholderSet()) {
-                mapperContext.addPlaceholder(placeholder);
-            }
+        if (segments.length == 1)
+            return sql; // placeholder가 없으면 그대로 반환.
+
+        StringBuilder sb = new StringBuilder(sql.length() + 16);
+        sb.append(segments[0]);
+        for (int inx = 1; inx < segments.length; inx += 2) {
+            sb.append(':').append(mapperContext.addPlaceholder(segments[inx]));
+            sb.append(segments[inx + 1]);
         }
-        return sql.trim();
+        return sb.toString(); // sql이 trim 상태이므로 결과도 trim 상태이다.
     }
 
-    private Set<String> getPlaceholderSet() {
-        if (placeholderSet == null) { // 한 번 정해지면 바뀔 일이 없으므로 캐슁해서 가져온다.
-            synchronized (this) {
-                if (placeholderSet == null) {
-                    placeholderSet = new HashSet<>();
-
-                    String[] words = sql.split("[^A-Za-z\\d.:_]+"); // 모든 토큰 분리 간이 로직이다. 실제로는 더 정교해야 할 수도 있다.
-                    for (String word : words) {
-                        if (COLON_IDENTIFIER_PATTERN.matcher(word).matches()) {
-                            String placeholder = word.substring(1); // ':' 뗴고 넣는다.
-                            placeholderSet.add(placeholder);
-                        }
-                    }
-                }
+    @Override
+    public void collectPlaceholders(Set<String> placeholders) {
+        placeholders.addAll(getPlaceholderSet());
+    }
+
+    String getSql() {
+        return sql;
+    }
+
+    Set<String> getPlaceholderSet() {
+        return placeholderSet;
+    }
+
+    /**
+     * SQL 문자열을 일반 문자열 조각과 placeholder 조각으로 나눈다.
+     * 반환된 List의 짝수 번째(0, 2, 4...) 요소는 일반 문자열이고 홀수 번째(1, 3, 5...) 요소는 ':'를 뗀 placeholder 이다.
+     * 따라서 List의 크기는 항상 홀수이고 일반 문자열 조각은 빈 문자열일 수 있다.
+     * 토큰 분리는 영문자, 숫자, '.', ':', '_' 가 아닌 문자를 경계로 하는 간이 로직이다. 실제로는 더 정교해야 할 수도 있다.
+     *
+     * @param sql 나눌 SQL 문자열.
+     * @return 일반 문자열 조각과 placeholder 조각이 번갈아 담긴 List 객체.
+     */
+    public static List<String> split(String sql) {
+        List<String> segments = new ArrayList<>();
+        int literalStart = 0;
+        int inx = 0;
+        while (inx < sql.length()) {
+            if (!isWordChar(sql.charAt(inx))) {
+                inx++;
+                continue;
+            }
+
+            int wordStart = inx;
+            while (inx < sql.length() && isWordChar(sql.charAt(inx)))
+                inx++;
+
+            if (COLON_IDENTIFIER_PATTERN.matcher(sql.substring(wordStart, inx)).matches()) {
+                segments.add(sql.substring(literalStart, wordStart));
+                segments.add(sql.substring(wordStart + 1, inx)); // ':' 떼고 넣는다.
+                literalStart = inx;
             }
         }
-        return placeholderSet;
+        segments.add(sql.substring(literalStart));
+        return segments;
+    }
+
+    private static boolean isWordChar(char ch) {
+        return (ch >= 'A' && ch <= 'Z') || (ch >= 'a' && ch <= 'z') || (ch >= '0' && ch <= '9') || ch == '.' || ch == ':' || ch == '_';
     }
 }
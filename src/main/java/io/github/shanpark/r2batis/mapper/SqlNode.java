@@ -3,6 +3,7 @@ package io.github.shanpark.r2batis.mapper;
 import io.github.shanpark.r2batis.exception.InvalidMapperElementException;
 import org.w3c.dom.Element;
 
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 
 public abstract class SqlNode {
@@ -38,4 +39,12 @@ public abstract class SqlNode {
      * @return 최종 생성된 SQL문. trim 상태로 반환한다.
      */
     public abstract String generateSql(MapperContext mapperContext);
+
+    /**
+     * 하위 노드까지 포함하여 SQL 문에 직접 사용된 placeholder 들을 모두 수집한다.
+     * foreach 의 item, index 처럼 SQL 생성 시에 이름이 바뀌는 placeholder 들도 원래 이름 그대로 수집된다.
+     *
+     * @param placeholders 수집된 placeholder 들이 추가될 Set 객체.
+     */
+    public abstract void collectPlaceholders(Set<String> placeholders);
 }
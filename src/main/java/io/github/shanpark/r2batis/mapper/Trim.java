@@ -7,6 +7,7 @@ import org.w3c.dom.NodeList;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -79,4 +80,10 @@ public final class Trim extends SqlNode {
             return prefix + " " + sql; // 마지막에 prefix 붙여서 반환.
         }
     }
+
+    @Override
+    public void collectPlaceholders(Set<String> placeholders) {
+        for (SqlNode sqlNode : sqlNodes)
+            sqlNode.collectPlaceholders(placeholders);
+    }
 }
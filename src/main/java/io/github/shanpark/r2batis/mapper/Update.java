@@ -44,6 +44,11 @@ public class Update extends Query {
                     sqlNodes.add(SqlNode.newSqlNode((Element) node));
             }
         }
+
+        prepareStaticSql();
+
+        if (isBatch() && (useGeneratedKeys || !selectKeys.isEmpty()))
+            throw new InvalidMapperElementException("The <update> element with batch=\"true\" cannot use generatedKeys or <selectKey>.");
     }
 
     public boolean isGenerateKeys() {
@@ -2,6 +2,7 @@ package io.github.shanpark.r2batis.mapper;
 
 import io.github.shanpark.r2batis.exception.MapperParsingException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.xml.sax.SAXException;
@@ -15,10 +16,41 @@ import java.io.InputStream;
 @Slf4j
 public class XmlMapperParser {
 
+    private static final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+
+    /**
+     * DocumentBuilder는 thread-safe 하지 않으므로 thread 별로 하나씩 생성해서 재사용한다.
+     * 여러 thread에서 동시에 mapper xml을 분석할 수 있다.
+     */
+    private static final ThreadLocal<DocumentBuilder> documentBuilder = ThreadLocal.withInitial(() -> {
+        try {
+            synchronized (factory) { // DocumentBuilderFactory도 thread-safe 하지 않다.
+                return factory.newDocumentBuilder();
+            }
+        } catch (ParserConfigurationException e) {
+            throw new MapperParsingException(e);
+        }
+    });
+
+    /**
+     * mapper xml 리소스를 읽어서 분석한다.
+     *
+     * @param resource mapper xml 리소스.
+     * @return 분석된 Mapper 객체. mapper xml이 아니면 empty mapper를 반환한다. 같은 리소스를 다시 parse하지 않도록 하기 위함이다.
+     */
+    public static Mapper parse(Resource resource) {
+        try (InputStream is = resource.getInputStream()) {
+            Mapper mapper = parse(is);
+            return mapper != null ? mapper : new Mapper();
+        } catch (IOException e) {
+            throw new MapperParsingException(e);
+        }
+    }
+
     public static Mapper parse(InputStream is) {
         try {
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
+            DocumentBuilder builder = documentBuilder.get();
+            builder.reset(); // 이전 분석 상태를 지우고 재사용한다.
 
             Document doc = builder.parse(is);
             Element root = doc.getDocumentElement();
@@ -28,7 +60,7 @@ public class XmlMapperParser {
             }
 
             return new Mapper(root);
-        } catch (ParserConfigurationException | IOException | SAXException e) {
+        } catch (IOException | SAXException e) {
             throw new MapperParsingException(e);
         }
     }
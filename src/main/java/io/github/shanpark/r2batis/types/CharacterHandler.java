@@ -3,7 +3,7 @@ package io.github.shanpark.r2batis.types;
 public class CharacterHandler implements TypeHandler {
     @Override
     public boolean canHandle(Class<?> clazz) {
-        return CharacterHandler.class.equals(clazz);
+        return Character.class.equals(clazz);
     }
 
     @Override
@@ -1,6 +1,7 @@
 package io.github.shanpark.r2batis.types;
 
 import java.time.*;
+import java.util.function.Function;
 
 /**
  * primitive 타입과 Number 상속 클래스들을 모두 담당하는 Handler이다.
@@ -49,4 +50,25 @@ public class NumberHandler implements TypeHandler {
 
         throw new ClassCastException(String.format("Can't cast '%s' to type '%s'.", value, targetClass.getName()));
     }
+
+    @Override
+    public Function<Object, Object> getConverter(Class<?> targetClass) {
+        // 숫자 컬럼은 가장 흔하게 변환되므로 숫자 타입들은 변환 시에 타입 비교를 하지 않는 전용 함수를 반환한다.
+        if (Byte.class.equals(targetClass) || byte.class.equals(targetClass))
+            return value -> ((Number) value).byteValue();
+        else if (Short.class.equals(targetClass) || short.class.equals(targetClass))
+            return value -> ((Number) value).shortValue();
+        else if (Integer.class.equals(targetClass) || int.class.equals(targetClass))
+            return value -> ((Number) value).intValue();
+        else if (Long.class.equals(targetClass) || long.class.equals(targetClass))
+            return value -> ((Number) value).longValue();
+        else if (Float.class.equals(targetClass) || float.class.equals(targetClass))
+            return value -> ((Number) value).floatValue();
+        else if (Double.class.equals(targetClass) || double.class.equals(targetClass))
+            return value -> ((Number) value).doubleValue();
+        else if (Boolean.class.equals(targetClass) || boolean.class.equals(targetClass))
+            return value -> ((Number) value).longValue() != 0;
+
+        return TypeHandler.super.getConverter(targetClass);
+    }
 }
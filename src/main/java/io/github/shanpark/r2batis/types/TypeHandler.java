@@ -1,6 +1,20 @@
 package io.github.shanpark.r2batis.types;
 
+import java.util.function.Function;
+
 public interface TypeHandler {
     boolean canHandle(Class<?> clazz);
     Object convert(Object value, Class<?> targetClass);
+
+    /**
+     * targetClass 로 변환하는 함수 객체를 반환한다.
+     * TypeUtils가 (source 타입, target 타입) 별로 한 번만 호출해서 캐슁하므로
+     * 자주 사용되는 변환은 override 해서 변환 시마다 target 타입을 비교하지 않도록 할 수 있다.
+     *
+     * @param targetClass 변환하고자 하는 target 타입 클래스 객체
+     * @return 값을 targetClass 로 변환하는 함수 객체.
+     */
+    default Function<Object, Object> getConverter(Class<?> targetClass) {
+        return value -> convert(value, targetClass);
+    }
 }
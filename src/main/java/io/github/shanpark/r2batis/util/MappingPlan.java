@@ -0,0 +1,251 @@
+package io.github.shanpark.r2batis.util;
+
+import io.github.shanpark.r2batis.exception.InvalidMapperElementException;
+import io.r2dbc.spi.Readable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.beans.ConstructorProperties;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.RecordComponent;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 쿼리 결과 한 행을 결과 클래스의 객체로 변환하는 방법을 미리 계산해둔 객체.
+ * (결과 클래스, 컬럼 구성) 별로 한 번만 생성되며 생성자와 각 컬럼에 대응되는 필드의 setter를 MethodHandle로 보관한다.
+ * 따라서 행 마다 reflection 으로 생성자와 필드를 찾거나 컬럼 이름을 변환하는 작업이 필요없다.
+ *
+ * 결과 클래스가 record 이거나 {@code @ConstructorProperties}가 붙은 생성자를 갖고 있으면 setter 대신
+ * 그 생성자의 parameter에 컬럼 값을 전달해서 한 번에 객체를 생성한다. 따라서 불변 객체도 결과 타입으로 사용할 수 있다.
+ */
+public final class MappingPlan {
+
+    private record Key(List<String> columns, boolean mapUnderscoreToCamelCase) {}
+
+    private static final class PlanCache {
+        private final Map<Key, MappingPlan> plans = new ConcurrentHashMap<>();
+        private volatile MappingPlan last; // 보통 같은 쿼리의 행들이 연속으로 들어오므로 마지막으로 사용된 plan을 먼저 확인한다.
+    }
+
+    private static final ClassValue<PlanCache> PLAN_CACHES = new ClassValue<>() {
+        @Override
+        protected PlanCache computeValue(Class<?> type) {
+            return new PlanCache();
+        }
+    };
+
+    private final String[] columns;
+    private final boolean mapUnderscoreToCamelCase;
+    private final MethodHandle constructor; // setter 방식이면 ()Object, 생성자 방식이면 (Object[])Object
+    private final MethodHandle[] setters; // (Object, Object)void. columns 와 같은 순서이다. 생성자 방식이면 null.
+    private final int[] argIndexes; // 각 컬럼 값이 전달될 생성자 parameter의 위치. columns 와 같은 순서이다. setter 방식이면 null.
+    private final Object[] defaultArgs; // 값이 없는 생성자 parameter에 전달될 값. primitive 타입은 0 또는 false 이다.
+    private final Class<?>[] fieldTypes; // 각 컬럼 값이 변환될 타입. (필드 또는 생성자 parameter의 타입)
+
+    /**
+     * 생성자 방식으로 객체를 생성할 때 사용할 생성자와 각 parameter에 대응되는 property 이름.
+     */
+    private record Creator(Constructor<?> constructor, String[] names) {}
+
+    /**
+     * clazz 타입에 대해서 columns 구성의 행을 변환하는 MappingPlan 객체를 반환한다.
+     * 이미 생성된 plan이 있으면 재사용한다.
+     *
+     * @param clazz 생성할 객체의 타입 Class
+     * @param columns 행의 컬럼 이름들. 행의 값들과 같은 순서이어야 한다.
+     * @param mapUnderscoreToCamelCase 컬럼 이름을 camel case 필드 이름으로 변환할 지 여부.
+     * @return MappingPlan 객체.
+     */
+    public static MappingPlan of(Class<?> clazz, Collection<String> columns, boolean mapUnderscoreToCamelCase) {
+        PlanCache planCache = PLAN_CACHES.get(clazz);
+        MappingPlan last = planCache.last;
+        if (last != null && last.matches(columns, mapUnderscoreToCamelCase))
+            return last;
+
+        Key key = new Key(List.copyOf(columns), mapUnderscoreToCamelCase);
+        MappingPlan plan = planCache.plans.computeIfAbsent(key, k -> new MappingPlan(clazz, k.columns(), k.mapUnderscoreToCamelCase()));
+        planCache.last = plan;
+        return plan;
+    }
+
+    private MappingPlan(Class<?> clazz, List<String> columns, boolean mapUnderscoreToCamelCase) {
+        this.columns = columns.toArray(new String[0]);
+        this.mapUnderscoreToCamelCase = mapUnderscoreToCamelCase;
+        this.fieldTypes = new Class<?>[this.columns.length];
+
+        Creator creator = findCreator(clazz);
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+            if (creator != null) {
+                Constructor<?> ctor = creator.constructor();
+                ctor.setAccessible(true);
+                Class<?>[] paramTypes = ctor.getParameterTypes();
+                constructor = lookup.unreflectConstructor(ctor)
+                        .asSpreader(Object[].class, paramTypes.length)
+                        .asType(MethodType.methodType(Object.class, Object[].class));
+                setters = null;
+
+                defaultArgs = new Object[paramTypes.length];
+                for (int inx = 0; inx < paramTypes.length; inx++) {
+                    if (paramTypes[inx].isPrimitive())
+                        defaultArgs[inx] = MethodHandles.zero(paramTypes[inx]).invoke(); // 0 또는 false 값을 boxing 해서 얻는다.
+                }
+
+                List<String> names = Arrays.asList(creator.names());
+                argIndexes = new int[this.columns.length];
+                for (int inx = 0; inx < this.columns.length; inx++) {
+                    String fieldName = mapUnderscoreToCamelCase ? CaseUtils.underscoreToCamalCase(this.columns[inx]) : this.columns[inx];
+                    argIndexes[inx] = names.indexOf(fieldName);
+                    if (argIndexes[inx] < 0)
+                        throw new InvalidMapperElementException(String.format("No constructor parameter matches the column '%s'. [%s]", this.columns[inx], clazz.getName()));
+                    fieldTypes[inx] = paramTypes[argIndexes[inx]];
+                }
+            } else {
+                Constructor<?> ctor = clazz.getDeclaredConstructor();
+                ctor.setAccessible(true);
+                constructor = lookup.unreflectConstructor(ctor).asType(MethodType.methodType(Object.class));
+                argIndexes = null;
+                defaultArgs = null;
+
+                setters = new MethodHandle[this.columns.length];
+                for (int inx = 0; inx < this.columns.length; inx++) {
+                    String fieldName = mapUnderscoreToCamelCase ? CaseUtils.underscoreToCamalCase(this.columns[inx]) : this.columns[inx];
+                    Field field = clazz.getDeclaredField(fieldName);
+                    field.setAccessible(true); // plan 생성 시 한 번만 설정해두면 된다.
+                    setters[inx] = lookup.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, Object.class));
+                    fieldTypes[inx] = field.getType();
+                }
+            }
+        } catch (NoSuchMethodException e) {
+            throw new InvalidMapperElementException("No default constructor was found. [" + clazz.getName() + "]", e);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new InvalidMapperElementException(e);
+        }
+    }
+
+    /**
+     * clazz 객체를 생성자 방식으로 생성할 수 있다면 사용할 생성자와 parameter 이름들을 반환한다.
+     * record 라면 canonical 생성자와 component 이름들을, 그렇지 않으면 {@code @ConstructorProperties}가 붙은 생성자 중에서
+     * parameter가 가장 많은 생성자와 어노테이션에 지정된 이름들을 사용한다.
+     *
+     * @return 생성자 방식을 사용할 수 없으면 null.
+     */
+    private static Creator findCreator(Class<?> clazz) {
+        if (clazz.isRecord()) {
+            RecordComponent[] components = clazz.getRecordComponents();
+            Class<?>[] types = Arrays.stream(components).map(RecordComponent::getType).toArray(Class<?>[]::new);
+            String[] names = Arrays.stream(components).map(RecordComponent::getName).toArray(String[]::new);
+            try {
+                return new Creator(clazz.getDeclaredConstructor(types), names);
+            } catch (NoSuchMethodException e) {
+                throw new InvalidMapperElementException("The canonical constructor was not found. [" + clazz.getName() + "]", e);
+            }
+        }
+
+        Creator creator = null;
+        for (Constructor<?> ctor : clazz.getDeclaredConstructors()) {
+            ConstructorProperties properties = ctor.getAnnotation(ConstructorProperties.class);
+            if (properties == null)
+                continue;
+            if (properties.value().length != ctor.getParameterCount())
+                throw new InvalidMapperElementException("The @ConstructorProperties does not match the constructor parameters. [" + clazz.getName() + "]");
+            if (creator == null || ctor.getParameterCount() > creator.constructor().getParameterCount())
+                creator = new Creator(ctor, properties.value());
+        }
+        return creator;
+    }
+
+    /**
+     * 이 plan이 전달된 컬럼 구성에 대한 것인지 확인한다.
+     */
+    private boolean matches(Collection<String> columns, boolean mapUnderscoreToCamelCase) {
+        if (this.mapUnderscoreToCamelCase != mapUnderscoreToCamelCase || this.columns.length != columns.size())
+            return false;
+
+        Iterator<String> it = columns.iterator();
+        for (String column : this.columns) {
+            if (!column.equals(it.next()))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * 객체를 생성하고 values 의 값들로 필드를 채워서 반환한다.
+     *
+     * @param values 각 필드에 설정될 값들. plan 생성 시 전달된 컬럼들과 같은 순서이어야 한다.
+     * @return 생성되어 값이 채워진 객체.
+     */
+    public Object newInstance(Iterable<Object> values) {
+        try {
+            if (argIndexes != null) {
+                Object[] args = defaultArgs.clone();
+                int inx = 0;
+                for (Object value : values) {
+                    setArg(args, inx, value);
+                    inx++;
+                }
+                return constructor.invokeExact(args);
+            }
+
+            Object obj = constructor.invokeExact();
+            int inx = 0;
+            for (Object value : values) {
+                setters[inx].invokeExact(obj, TypeUtils.convert(value, fieldTypes[inx])); // 무조건 지원하는 타입이어야 한다. 그렇지 않으면 exception 발생.
+                inx++;
+            }
+            return obj;
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new InvalidMapperElementException(e);
+        }
+    }
+
+    /**
+     * 객체를 생성하고 R2DBC Row 의 값들을 컬럼 위치로 읽어서 필드를 채워서 반환한다.
+     * 중간에 Map을 만들지 않고 Row에서 바로 읽는다.
+     *
+     * @param readable 값을 읽을 Row 객체. plan 생성 시 전달된 컬럼들과 같은 순서의 컬럼을 가져야 한다.
+     * @return 생성되어 값이 채워진 객체.
+     */
+    public Object newInstance(Readable readable) {
+        try {
+            if (argIndexes != null) {
+                Object[] args = defaultArgs.clone();
+                for (int inx = 0; inx < argIndexes.length; inx++)
+                    setArg(args, inx, readable.get(inx));
+                return constructor.invokeExact(args);
+            }
+
+            Object obj = constructor.invokeExact();
+            for (int inx = 0; inx < setters.length; inx++)
+                setters[inx].invokeExact(obj, TypeUtils.convert(readable.get(inx), fieldTypes[inx]));
+            return obj;
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new InvalidMapperElementException(e);
+        }
+    }
+
+    /**
+     * inx 번째 컬럼의 값을 변환해서 대응되는 생성자 parameter 위치에 넣는다.
+     * 값이 null 이면 기본값을 그대로 둔다. (primitive parameter에 null을 전달할 수 없다.)
+     */
+    private void setArg(Object[] args, int inx, Object value) {
+        Object converted = TypeUtils.convert(value, fieldTypes[inx]); // 무조건 지원하는 타입이어야 한다. 그렇지 않으면 exception 발생.
+        if (converted != null)
+            args[argIndexes[inx]] = converted;
+    }
+}
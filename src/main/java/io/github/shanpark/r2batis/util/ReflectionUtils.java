@@ -2,38 +2,43 @@ package io.github.shanpark.r2batis.util;
 
 import io.github.shanpark.r2batis.exception.InvalidMapperElementException;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 public class ReflectionUtils {
 
+    // 클래스 별로 필드 이름 -> getter Function 을 캐슁한다. getFieldValue()에서 사용된다.
+    private static final ClassValue<Map<String, Function<Object, Object>>> getterCache = new ClassValue<>() {
+        @Override
+        protected Map<String, Function<Object, Object>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
     /**
      * 지정된 clazz 객체 타입을 생성하고 map에 담겨진 값들로 필드를 채워서 반환한다.
      * 만약 일반 POJO 객체가 아닌 DB의 primitive 타입이라면 Map에 담겨진 첫번째 값을
      * 갖는 primitive 객체가 반환될 것이다.
+     * record 이거나 {@code @ConstructorProperties} 생성자를 갖는 클래스라면 필드를 채우는 대신 생성자로 값을 전달한다.
      *
      * @param map 객체의 각 필드를 채울 값이 담겨진 Map. key가 field의 이름이 된다.
      * @param clazz 생성할 객체의 타입 Class
      * @return 생성되어 값이 채워진 객체.
      */
     public static Object newInstanceFromMap(Map<String, Object> map, Class<?> clazz, boolean mapUnderscoreToCamelCase) {
-        try {
-            if (TypeUtils.supports(clazz)) {
-                return TypeUtils.convert(map.values().iterator().next(), clazz);
-            } else {
-                Object obj = clazz.getDeclaredConstructor().newInstance();
-                for (Map.Entry<String, Object> entry : map.entrySet()) {
-                    String key = mapUnderscoreToCamelCase ? CaseUtils.underscoreToCamalCase(entry.getKey()) : entry.getKey();
-                    setFieldValue(obj, key, entry.getValue());
-                }
-                return obj;
-            }
-        } catch (NoSuchMethodException e) {
-            throw new InvalidMapperElementException("No default constructor was found. [" + clazz.getName() + "]", e);
-        } catch (InstantiationException | IllegalAccessException | InvocationTargetException | NoSuchFieldException e) {
-            throw new InvalidMapperElementException(e);
+        if (TypeUtils.supports(clazz)) {
+            return TypeUtils.convert(map.values().iterator().next(), clazz);
+        } else {
+            // 생성자, 필드 setter 탐색은 (clazz, 컬럼 구성) 별로 한 번만 이루어진다.
+            return MappingPlan.of(clazz, map.keySet(), mapUnderscoreToCamelCase).newInstance(map.values());
         }
     }
 
@@ -73,6 +78,84 @@ public class ReflectionUtils {
         }
     }
 
+    /**
+     * 객체의 하위 필드 값을 getter를 차례로 호출해서 읽어온다.
+     * getter Function은 (클래스, 필드 이름) 별로 한 번만 생성되어 캐슁된다.
+     *
+     * @param obj 값을 읽기 시작할 객체.
+     * @param fields "obj.field1.field2" 같은 접근이라면 ["obj", "field1", "field2"] 배열이 전달된다.
+     * @param fromIndex fields 에서 읽기 시작할 필드의 index. 이 앞의 필드들은 obj 자신을 가리키는 것으로 본다.
+     * @return 읽어온 값. null일 수 있다.
+     */
+    public static Object getFieldValue(Object obj, String[] fields, int fromIndex) {
+        Object value = obj;
+        for (int inx = fromIndex; inx < fields.length; inx++) {
+            if (value == null)
+                throw new InvalidMapperElementException(String.format("Can't read '%s'. The intermediate value is null.", String.join(".", fields)));
+
+            Class<?> clazz = value.getClass();
+            Function<Object, Object> getter = getterCache.get(clazz).computeIfAbsent(fields[inx], name -> {
+                try {
+                    return getGetterFunction(clazz, name);
+                } catch (NoSuchMethodException e) {
+                    throw new InvalidMapperElementException(String.format("'%s' field of '%s' not found", name, String.join(".", fields)), e);
+                }
+            });
+            value = getter.apply(value);
+        }
+        return value;
+    }
+
+    /**
+     * clazz 객체의 fieldName 필드에 대한 getter를 호출하는 Function 객체를 생성한다.
+     * LambdaMetafactory로 getter를 직접 호출하는 Function을 생성하므로 reflection 호출보다 훨씬 가볍다.
+     * LambdaMetafactory를 사용할 수 없는 경우에는 MethodHandle을 호출하는 Function을 반환한다.
+     *
+     * @param clazz getter를 찾을 Class 객체.
+     * @param fieldName getter를 찾을 필드 이름.
+     * @return 객체를 받아서 getter가 반환한 값을 반환하는 Function 객체.
+     */
+    @SuppressWarnings("unchecked")
+    public static Function<Object, Object> getGetterFunction(Class<?> clazz, String fieldName) throws NoSuchMethodException {
+        Method getter = getGetterMethod(clazz, fieldName);
+        MethodHandle handle;
+        MethodHandles.Lookup lookup;
+        try {
+            // 생성되는 lambda 클래스가 getter를 선언한 클래스와 같은 class loader에 정의되도록 해당 클래스의 lookup을 사용한다.
+            lookup = MethodHandles.privateLookupIn(getter.getDeclaringClass(), MethodHandles.lookup());
+            handle = lookup.unreflect(getter);
+        } catch (IllegalAccessException e) {
+            try { // JDK 클래스처럼 private access가 허용되지 않는 경우. public getter라면 이 클래스의 lookup으로도 접근할 수 있다.
+                lookup = MethodHandles.lookup();
+                handle = lookup.unreflect(getter);
+            } catch (IllegalAccessException ex) {
+                throw new InvalidMapperElementException(String.format("The getter of '%s' field is not accessible. [%s]", fieldName, clazz.getName()), ex);
+            }
+        }
+
+        try {
+            CallSite callSite = LambdaMetafactory.metafactory(
+                    lookup,
+                    "apply",
+                    MethodType.methodType(Function.class),
+                    MethodType.methodType(Object.class, Object.class),
+                    handle,
+                    handle.type().wrap()); // primitive 반환 타입은 boxing 된다.
+            return (Function<Object, Object>) callSite.getTarget().invokeExact();
+        } catch (Throwable e) { // LambdaMetafactory를 쓸 수 없으면 MethodHandle을 직접 호출한다.
+            MethodHandle genericHandle = handle.asType(MethodType.methodType(Object.class, Object.class));
+            return obj -> {
+                try {
+                    return genericHandle.invokeExact(obj);
+                } catch (RuntimeException | Error ex) {
+                    throw ex;
+                } catch (Throwable ex) {
+                    throw new InvalidMapperElementException(ex);
+                }
+            };
+        }
+    }
+
     public static Method getGetterMethod(Class<?> clazz, String fieldName) throws NoSuchMethodException {
         String getterMethodName;
         Method getterMethod;
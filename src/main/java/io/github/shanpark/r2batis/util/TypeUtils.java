@@ -6,6 +6,7 @@ import java.time.ZoneId;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 /**
  * R2DBC 드라이버가 지원하는 지원 타입들 간에 서로 변환해주는 Utility 클래스이다.
@@ -28,6 +29,32 @@ public class TypeUtils {
             new NumberHandler() // primitive와 각종 Number 상속 클래스들을 통으로 지원. 마지막에 넣는 게 좋다.
     );
 
+    /**
+     * 타입 별 지원 여부 캐쉬. 한 번 판단된 결과는 바뀌지 않는다.
+     */
+    private static final ClassValue<Boolean> supportCache = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return supports.stream().anyMatch(handler -> handler.canHandle(type));
+        }
+    };
+
+    /**
+     * (source 타입, target 타입) 별 변환 함수 캐쉬.
+     * 바깥 ClassValue는 source 타입, 안쪽 ClassValue는 target 타입으로 찾는다.
+     */
+    private static final ClassValue<ClassValue<Function<Object, Object>>> converterCache = new ClassValue<>() {
+        @Override
+        protected ClassValue<Function<Object, Object>> computeValue(Class<?> sourceClass) {
+            return new ClassValue<>() {
+                @Override
+                protected Function<Object, Object> computeValue(Class<?> targetClass) {
+                    return resolveConverter(sourceClass, targetClass);
+                }
+            };
+        }
+    };
+
     /**
      * TypeHandler series 클래스들이 지원하는 타입인지 체크.
      *
@@ -35,7 +62,7 @@ public class TypeUtils {
      * @return 지원하는 타입이면 true, 그렇지 않으면 false
      */
     public static boolean supports(Class<?> clazz) {
-        return supports.stream().anyMatch(handler -> handler.canHandle(clazz));
+        return supportCache.get(clazz);
     }
 
     /**
@@ -47,19 +74,62 @@ public class TypeUtils {
      * @return targetClass로 변환된 값 객체.
      */
     public static Object convert(Object value, Class<?> targetClass) {
-        if (value != null) {
-            Class<?> sourceClass = value.getClass();
-            Optional<TypeHandler> typeHandler = supports.stream()
-                    .filter(handler -> handler.canHandle(sourceClass))
-                    .findFirst();
+        if (value != null)
+            return getConverter(value.getClass(), targetClass).apply(value);
+        else
+            return null; // null은 특정 타입으로 변환을 해도 null이다.
+    }
+
+    /**
+     * sourceClass 타입의 값을 targetClass 타입으로 변환하는 함수 객체를 반환한다.
+     * (sourceClass, targetClass) 별로 한 번만 결정되고 캐슁된다.
+     *
+     * @param sourceClass 변환할 값의 타입 클래스 객체
+     * @param targetClass 변환하고자 하는 target 타입 클래스 객체
+     * @return 변환 함수 객체. 변환이 불가능한 값이 전달되면 ClassCastException이 발생한다.
+     */
+    public static Function<Object, Object> getConverter(Class<?> sourceClass, Class<?> targetClass) {
+        return converterCache.get(sourceClass).get(targetClass);
+    }
+
+    private static Function<Object, Object> resolveConverter(Class<?> sourceClass, Class<?> targetClass) {
+        if (sourceClass.equals(targetClass) || sourceClass.equals(boxedClassOf(targetClass)))
+            return Function.identity(); // 같은 타입이면 handler를 거칠 필요가 없다.
+        if (targetClass.isAssignableFrom(sourceClass))
+            return Function.identity(); // resultMap의 하위 객체(List, association 객체)처럼 이미 target 타입인 값.
 
-            if (typeHandler.isPresent())
-                return typeHandler.get().convert(value, targetClass);
+        Optional<TypeHandler> typeHandler = supports.stream()
+                .filter(handler -> handler.canHandle(sourceClass))
+                .findFirst();
 
+        if (typeHandler.isPresent())
+            return typeHandler.get().getConverter(targetClass);
+
+        return value -> {
             throw new ClassCastException(String.format("Can't cast '%s' type value. No TypeHandler is available.", sourceClass.getName()));
-        } else {
-            return null; // null은 특정 타입으로 변환을 해도 null이다.
-        }
+        };
+    }
+
+    private static Class<?> boxedClassOf(Class<?> clazz) {
+        if (!clazz.isPrimitive())
+            return clazz;
+        else if (int.class.equals(clazz))
+            return Integer.class;
+        else if (long.class.equals(clazz))
+            return Long.class;
+        else if (boolean.class.equals(clazz))
+            return Boolean.class;
+        else if (double.class.equals(clazz))
+            return Double.class;
+        else if (float.class.equals(clazz))
+            return Float.class;
+        else if (short.class.equals(clazz))
+            return Short.class;
+        else if (byte.class.equals(clazz))
+            return Byte.class;
+        else if (char.class.equals(clazz))
+            return Character.class;
+        return clazz; // void
     }
 
     /**